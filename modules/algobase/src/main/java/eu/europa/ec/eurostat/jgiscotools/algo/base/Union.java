@@ -11,7 +11,6 @@ import org.apache.logging.log4j.Logger;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
-import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.MultiLineString;
 import org.locationtech.jts.geom.MultiPolygon;
@@ -19,6 +18,8 @@ import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.operation.linemerge.LineMerger;
 import org.locationtech.jts.operation.union.CascadedPolygonUnion;
 
+import eu.europa.ec.eurostat.jgiscotools.feature.JTSGeomUtil;
+
 /**
  * Efficient union of polygons.
  * 
@@ -95,7 +96,7 @@ public class Union {
 			} else LOGGER.error("Error in polygon union: geometry type not supported: " + geom.getGeometryType());
 		}
 		if (polys.size()==1) return polys.get(0);
-		if (geoms_.isEmpty()) return new GeometryFactory().createGeometryCollection(new Geometry[0]);
+		if (geoms_.isEmpty()) return JTSGeomUtil.getGeometryFactory().createGeometryCollection(new Geometry[0]);
 		return geoms_.iterator().next().getFactory().createMultiPolygon(polys.toArray(new Polygon[0]));
 
 	}
@@ -111,7 +112,7 @@ public class Union {
 			} else LOGGER.error("Error in line union: geometry type not supported: " + geom.getGeometryType());
 		}
 		if (ls.size()==1) return ls.get(0);
-		if (geoms_.isEmpty()) return new GeometryFactory().createGeometryCollection(new Geometry[0]);
+		if (geoms_.isEmpty()) return JTSGeomUtil.getGeometryFactory().createGeometryCollection(new Geometry[0]);
 		return geoms_.iterator().next().getFactory().createMultiLineString(ls.toArray(new LineString[0]));
 
 	}
@@ -147,7 +148,7 @@ public class Union {
 			} catch (Exception e1) {
 				try {
 					if(LOGGER.isTraceEnabled()) LOGGER.trace("Try buffer(0)");
-					GeometryCollection gc = new GeometryFactory().createGeometryCollection(polys.toArray(new Geometry[polys.size()]));
+					GeometryCollection gc = JTSGeomUtil.getGeometryFactory().createGeometryCollection(polys.toArray(new Geometry[polys.size()]));
 					union = gc.buffer(0);
 				} catch (Exception e2) {
 					if(LOGGER.isTraceEnabled()) LOGGER.trace("Try iterative union");
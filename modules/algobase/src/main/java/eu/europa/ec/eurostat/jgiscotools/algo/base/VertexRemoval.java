@@ -7,7 +7,6 @@ import java.util.Collections;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
-import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.LinearRing;
 import org.locationtech.jts.geom.MultiPolygon;
@@ -127,7 +126,7 @@ public class VertexRemoval {
 		if(!isIn(ls.getCoordinates(), c)) return ls;
 		Coordinate[] cs = remove(ls.getCoordinates(), c);
 		if(cs.length<=1) return null;
-		return new GeometryFactory().createLineString(remove(ls.getCoordinates(),c));
+		return JTSGeomUtil.getGeometryFactory().createLineString(remove(ls.getCoordinates(),c));
 	}
 
 	private static LinearRing remove(LinearRing lr, Coordinate c) {
@@ -141,7 +140,7 @@ public class VertexRemoval {
 			cs=cs_;
 		}
 		if(cs.length<=3) return null;
-		return new GeometryFactory().createLinearRing(cs);
+		return JTSGeomUtil.getGeometryFactory().createLinearRing(cs);
 	}
 
 	private static Polygon remove(Polygon p, Coordinate c) {
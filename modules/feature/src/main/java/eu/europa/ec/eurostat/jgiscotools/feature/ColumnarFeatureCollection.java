@@ -0,0 +1,519 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A collection of features whose attributes are stored by column instead of feature by feature.
+ * The schema (the attribute names) is stored once for the whole collection,
+ * and the attribute values are stored in typed primitive columns (for Double, Integer and Long values),
+ * dictionary-encoded columns (for String values) or generic columns (for other types).
+ * This saves the memory of one map per feature and of the boxed values.
+ *
+ * The features of the collection are {@link ColumnarFeature} objects, which expose the usual {@link Feature} accessors,
+ * so that they can be used by all algorithms handling features.
+ * NB: the features added to the collection are copied into columnar features.
+ * NB: the attribute map of a feature contains all attributes of the schema, possibly with null values,
+ * except the ones explicitly removed from it.
+ *
+ * This collection is not thread safe for modifications.
+ *
+ * @author julien Gaffuri
+ *
+ */
+public class ColumnarFeatureCollection extends AbstractList<Feature> {
+
+	//the features
+	private ArrayList<ColumnarFeature> features;
+
+	//the columns, indexed by attribute name
+	private LinkedHashMap<String, Column> columns = new LinkedHashMap<>();
+
+	//the capacity of the columns
+	private int capacity;
+
+	/**
+	 * Build an empty collection.
+	 */
+	public ColumnarFeatureCollection() { this(16); }
+
+	/**
+	 * Build an empty collection.
+	 *
+	 * @param initialCapacity
+	 */
+	public ColumnarFeatureCollection(int initialCapacity) {
+		this.capacity = Math.max(1, initialCapacity);
+		this.features = new ArrayList<>(this.capacity);
+	}
+
+	/**
+	 * Build a collection from features.
+	 *
+	 * @param fs
+	 */
+	public ColumnarFeatureCollection(Collection<? extends Feature> fs) {
+		this(fs.size());
+		for(Feature f : fs) add(f);
+	}
+
+	/** @return The attribute names. */
+	public Set<String> getAttributeNames() { return Collections.unmodifiableSet(columns.keySet()); }
+
+	/**
+	 * Get the class of the values stored in a column, if they all have the same type.
+	 *
+	 * @param att
+	 * @return The class, or Object if the type is unknown or mixed.
+	 */
+	public Class<?> getAttributeType(String att) {
+		Column col = columns.get(att);
+		return col == null? Object.class : col.getType();
+	}
+
+	@Override
+	public Feature get(int index) { return features.get(index); }
+
+	@Override
+	public int size() { return features.size(); }
+
+	@Override
+	public void add(int index, Feature f) {
+		int n = features.size();
+		if(index < 0 || index > n) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + n);
+		ensureCapacity(n + 1);
+
+		//shift the rows after the index
+		if(index < n) {
+			for(Column col : columns.values()) col.shift(index, n, 1);
+			for(int i=index; i<n; i++) features.get(i).index++;
+		}
+
+		ColumnarFeature cf = new ColumnarFeature(this, index);
+		cf.setID(f.getID());
+		cf.setGeometry(f.getGeometry());
+		features.add(index, cf);
+
+		//set all attributes, including the null ones, to clear shifted values
+		setRow(index, f.getAttributes());
+	}
+
+	@Override
+	public Feature set(int index, Feature f) {
+		ColumnarFeature old = features.get(index);
+		if(f == old) return old;
+
+		//get the values of the new feature, before the row is changed: it may be the one of the feature
+		ColumnarFeature cf = f instanceof ColumnarFeature? (ColumnarFeature)f : null;
+		boolean moved = cf != null && cf.fc == this;
+		Map<String, Object> atts = moved? getRow(cf.index) : new LinkedHashMap<>(f.getAttributes());
+
+		//detach the old feature, unless it was moved to another row already
+		if(old.index == index) old.detach(getRow(index));
+
+		//write the row
+		setRow(index, atts);
+
+		//the feature of the row: moved or detached features of this collection are reused, with their attributes, others are copied
+		if(moved || (cf != null && cf.fc == null && cf.owner == this)) {
+			for(String att : columns.keySet())
+				if(!atts.containsKey(att)) removeValue(index, att);
+			cf.attach(this, index);
+		} else {
+			cf = new ColumnarFeature(this, index);
+			cf.setID(f.getID());
+			cf.setGeometry(f.getGeometry());
+		}
+		features.set(index, cf);
+		return old;
+	}
+
+	@Override
+	public Feature remove(int index) {
+		int n = features.size();
+		ColumnarFeature cf = features.remove(index);
+
+		//detach the feature: copy its attributes into its own map
+		if(cf.index == index) cf.detach(getRow(index));
+
+		//shift the rows after the index
+		for(Column col : columns.values()) { col.shift(index + 1, n, -1); col.clearRow(n - 1); }
+		for(int i=index; i<n-1; i++) features.get(i).index--;
+		return cf;
+	}
+
+	@Override
+	public void clear() {
+		for(int i=0; i<features.size(); i++) {
+			ColumnarFeature cf = features.get(i);
+			if(cf.index == i) cf.detach(getRow(i));
+		}
+		features.clear();
+		columns.clear();
+	}
+
+	private void ensureCapacity(int n) {
+		if(n <= capacity) return;
+		capacity = Math.max(n, capacity + (capacity >> 1));
+		for(Column col : columns.values()) col.grow(capacity);
+	}
+
+	//get the attributes of a row, without the removed ones
+	private Map<String, Object> getRow(int index) {
+		LinkedHashMap<String, Object> atts = new LinkedHashMap<>();
+		for(Map.Entry<String, Column> e : columns.entrySet())
+			if(!e.getValue().removed.get(index)) atts.put(e.getKey(), e.getValue().get(index));
+		return atts;
+	}
+
+	//set the attributes of a row. The attributes of the schema which are not given are set to null.
+	private void setRow(int index, Map<String, Object> atts) {
+		for(Column col : columns.values()) col.clearRow(index);
+		for(Map.Entry<String, Object> e : atts.entrySet())
+			setValue(index, e.getKey(), e.getValue());
+	}
+
+	private Object getValue(int index, String att) {
+		Column col = columns.get(att);
+		return col == null? null : col.get(index);
+	}
+
+	private Object setValue(int index, String att, Object value) {
+		Column col = columns.get(att);
+		if(col == null) col = new EmptyColumn(capacity);
+		Object old = col.get(index);
+		Column col_ = col.set(index, value);
+		col_.removed.clear(index);
+		if(col_ != col || !columns.containsKey(att)) columns.put(att, col_);
+		return old;
+	}
+
+	//remove an attribute from a row
+	private Object removeValue(int index, String att) {
+		Column col = columns.get(att);
+		if(col == null || col.removed.get(index)) return null;
+		Object old = col.get(index);
+		col.clearRow(index);
+		col.removed.set(index);
+		return old;
+	}
+
+	private boolean hasValue(int index, String att) {
+		Column col = columns.get(att);
+		return col != null && !col.removed.get(index);
+	}
+
+
+
+
+	/**
+	 * A feature whose attributes are stored in the columns of a {@link ColumnarFeatureCollection}.
+	 * When removed from its collection, the feature keeps its attribute values in its own map.
+	 */
+	public static class ColumnarFeature extends Feature {
+		private ColumnarFeatureCollection fc;
+		//the collection the feature was created for
+		private final ColumnarFeatureCollection owner;
+		private int index;
+		private AttributeMap map;
+
+		private ColumnarFeature(ColumnarFeatureCollection fc, int index) {
+			this.fc = fc;
+			this.owner = fc;
+			this.index = index;
+		}
+
+		//detach the feature from its collection
+		private void detach(Map<String, Object> atts) {
+			this.fc = null;
+			this.map = null;
+			super.getAttributes().putAll(atts);
+		}
+
+		//attach the feature back to its collection, or move it to another row
+		private void attach(ColumnarFeatureCollection fc, int index) {
+			if(this.fc == null) super.getAttributes().clear();
+			this.fc = fc;
+			this.index = index;
+		}
+
+		@Override
+		public Map<String, Object> getAttributes() {
+			if(fc == null) return super.getAttributes();
+			if(map == null) map = new AttributeMap(this);
+			return map;
+		}
+
+		@Override
+		public Object getAttribute(String attributeName) {
+			if(fc == null) return super.getAttribute(attributeName);
+			return fc.getValue(index, attributeName);
+		}
+
+		@Override
+		public Object setAttribute(String attributeName, Object value) {
+			if(fc == null) return super.setAttribute(attributeName, value);
+			return fc.setValue(index, attributeName, value);
+		}
+	}
+
+	//a map view on the attributes of a columnar feature
+	private static class AttributeMap extends AbstractMap<String, Object> {
+		private final ColumnarFeature f;
+		AttributeMap(ColumnarFeature f) { this.f = f; }
+
+		@Override
+		public Object get(Object key) { return f.fc.getValue(f.index, (String)key); }
+		@Override
+		public Object put(String key, Object value) { return f.fc.setValue(f.index, key, value); }
+		@Override
+		public Object remove(Object key) { return key instanceof String? f.fc.removeValue(f.index, (String)key) : null; }
+		@Override
+		public boolean containsKey(Object key) { return key instanceof String && f.fc.hasValue(f.index, (String)key); }
+		@Override
+		public int size() {
+			int nb = 0;
+			for(Column col : f.fc.columns.values()) if(!col.removed.get(f.index)) nb++;
+			return nb;
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return new AbstractSet<Entry<String, Object>>() {
+				@Override
+				public int size() { return AttributeMap.this.size(); }
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					Iterator<Entry<String, Column>> it = f.fc.columns.entrySet().iterator();
+					return new Iterator<Entry<String, Object>>() {
+						//the next attribute of the row, not removed
+						Entry<String, Column> nxt = advance();
+						private Entry<String, Column> advance() {
+							while(it.hasNext()) {
+								Entry<String, Column> e = it.next();
+								if(!e.getValue().removed.get(f.index)) return e;
+							}
+							return null;
+						}
+						@Override
+						public boolean hasNext() { return nxt != null; }
+						@Override
+						public Entry<String, Object> next() {
+							if(nxt == null) throw new NoSuchElementException();
+							String key = nxt.getKey();
+							nxt = advance();
+							return new SimpleEntry<String, Object>(key, get(key)) {
+								private static final long serialVersionUID = 1L;
+								@Override
+								public Object setValue(Object value) { super.setValue(value); return put(key, value); }
+							};
+						}
+					};
+				}
+			};
+		}
+	}
+
+
+
+
+	//columns
+
+	private static abstract class Column {
+		//the rows the attribute was removed from
+		BitSet removed = new BitSet();
+
+		//set the value of a row to null, the attribute being defined
+		void clearRow(int i) { clear(i); removed.clear(i); }
+		//move the rows [from,to[ by an offset
+		void shift(int from, int to, int offset) {
+			shiftValues(from, to, offset);
+			removed = shiftBits(removed, from, to, offset);
+		}
+
+		//get the value of a row
+		abstract Object get(int i);
+		//set the value of a row. Returns the column to use from now on, which may be a new one, if the value type requires it
+		abstract Column set(int i, Object v);
+		//set the value of a row to null
+		abstract void clear(int i);
+		//grow the column
+		abstract void grow(int capacity);
+		//move the values of the rows [from,to[ by an offset
+		abstract void shiftValues(int from, int to, int offset);
+		//the type of the column values
+		abstract Class<?> getType();
+		//the column capacity
+		abstract int capacity();
+
+		//convert into a generic column
+		Column toObjectColumn() {
+			ObjectColumn oc = new ObjectColumn(capacity());
+			for(int i=0; i<capacity(); i++) oc.values[i] = get(i);
+			oc.removed = removed;
+			return oc;
+		}
+	}
+
+	//a column with only null values, waiting for its first value to determine its type
+	private static class EmptyColumn extends Column {
+		private int capacity;
+		EmptyColumn(int capacity) { this.capacity = capacity; }
+		Object get(int i) { return null; }
+		Column set(int i, Object v) {
+			if(v == null) return this;
+			Column col;
+			if(v instanceof Double) col = new DoubleColumn(capacity);
+			else if(v instanceof Integer) col = new IntColumn(capacity);
+			else if(v instanceof Long) col = new LongColumn(capacity);
+			else if(v instanceof String) col = new StringColumn(capacity);
+			else col = new ObjectColumn(capacity);
+			col.removed = removed;
+			return col.set(i, v);
+		}
+		void clear(int i) {}
+		void grow(int capacity) { this.capacity = capacity; }
+		void shiftValues(int from, int to, int offset) {}
+		Class<?> getType() { return Object.class; }
+		int capacity() { return capacity; }
+	}
+
+	private static class DoubleColumn extends Column {
+		private double[] values;
+		private BitSet present = new BitSet();
+		DoubleColumn(int capacity) { values = new double[capacity]; }
+		Object get(int i) { return present.get(i)? values[i] : null; }
+		Column set(int i, Object v) {
+			if(v == null) { present.clear(i); return this; }
+			if(!(v instanceof Double)) return toObjectColumn().set(i, v);
+			values[i] = (Double)v; present.set(i);
+			return this;
+		}
+		void clear(int i) { present.clear(i); }
+		void grow(int capacity) { values = Arrays.copyOf(values, capacity); }
+		void shiftValues(int from, int to, int offset) {
+			System.arraycopy(values, from, values, from+offset, to-from);
+			present = shiftBits(present, from, to, offset);
+		}
+		Class<?> getType() { return Double.class; }
+		int capacity() { return values.length; }
+	}
+
+	private static class IntColumn extends Column {
+		private int[] values;
+		private BitSet present = new BitSet();
+		IntColumn(int capacity) { values = new int[capacity]; }
+		Object get(int i) { return present.get(i)? values[i] : null; }
+		Column set(int i, Object v) {
+			if(v == null) { present.clear(i); return this; }
+			if(!(v instanceof Integer)) return toObjectColumn().set(i, v);
+			values[i] = (Integer)v; present.set(i);
+			return this;
+		}
+		void clear(int i) { present.clear(i); }
+		void grow(int capacity) { values = Arrays.copyOf(values, capacity); }
+		void shiftValues(int from, int to, int offset) {
+			System.arraycopy(values, from, values, from+offset, to-from);
+			present = shiftBits(present, from, to, offset);
+		}
+		Class<?> getType() { return Integer.class; }
+		int capacity() { return values.length; }
+	}
+
+	private static class LongColumn extends Column {
+		private long[] values;
+		private BitSet present = new BitSet();
+		LongColumn(int capacity) { values = new long[capacity]; }
+		Object get(int i) { return present.get(i)? values[i] : null; }
+		Column set(int i, Object v) {
+			if(v == null) { present.clear(i); return this; }
+			if(!(v instanceof Long)) return toObjectColumn().set(i, v);
+			values[i] = (Long)v; present.set(i);
+			return this;
+		}
+		void clear(int i) { present.clear(i); }
+		void grow(int capacity) { values = Arrays.copyOf(values, capacity); }
+		void shiftValues(int from, int to, int offset) {
+			System.arraycopy(values, from, values, from+offset, to-from);
+			present = shiftBits(present, from, to, offset);
+		}
+		Class<?> getType() { return Long.class; }
+		int capacity() { return values.length; }
+	}
+
+	//dictionary-encoded string column
+	private static class StringColumn extends Column {
+		private int[] codes;
+		private ArrayList<String> dict = new ArrayList<>();
+		private HashMap<String, Integer> dictIndex = new HashMap<>();
+		StringColumn(int capacity) { codes = new int[capacity]; Arrays.fill(codes, -1); }
+		Object get(int i) { int c = codes[i]; return c<0? null : dict.get(c); }
+		Column set(int i, Object v) {
+			if(v == null) { codes[i] = -1; return this; }
+			if(!(v instanceof String)) return toObjectColumn().set(i, v);
+			Integer c = dictIndex.get(v);
+			if(c == null) {
+				c = dict.size();
+				dict.add((String)v);
+				dictIndex.put((String)v, c);
+			}
+			codes[i] = c;
+			return this;
+		}
+		void clear(int i) { codes[i] = -1; }
+		void grow(int capacity) {
+			int n = codes.length;
+			codes = Arrays.copyOf(codes, capacity);
+			Arrays.fill(codes, n, capacity, -1);
+		}
+		void shiftValues(int from, int to, int offset) { System.arraycopy(codes, from, codes, from+offset, to-from); }
+		Class<?> getType() { return String.class; }
+		int capacity() { return codes.length; }
+	}
+
+	private static class ObjectColumn extends Column {
+		private Object[] values;
+		ObjectColumn(int capacity) { values = new Object[capacity]; }
+		Object get(int i) { return values[i]; }
+		Column set(int i, Object v) { values[i] = v; return this; }
+		void clear(int i) { values[i] = null; }
+		void grow(int capacity) { values = Arrays.copyOf(values, capacity); }
+		void shiftValues(int from, int to, int offset) { System.arraycopy(values, from, values, from+offset, to-from); }
+		Class<?> getType() {
+			Class<?> cl = null;
+			for(Object v : values) {
+				if(v == null) continue;
+				if(cl == null) cl = v.getClass();
+				else if(cl != v.getClass()) return Object.class;
+			}
+			return cl == null? Object.class : cl;
+		}
+		int capacity() { return values.length; }
+		Column toObjectColumn() { return this; }
+	}
+
+	//move the bits [from,to[ of a bitset by an offset
+	private static BitSet shiftBits(BitSet bs, int from, int to, int offset) {
+		BitSet moved = bs.get(from, to);
+		bs.clear(Math.min(from, from+offset), Math.max(to, to+offset));
+		for(int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i+1))
+			bs.set(from + offset + i);
+		return bs;
+	}
+
+}
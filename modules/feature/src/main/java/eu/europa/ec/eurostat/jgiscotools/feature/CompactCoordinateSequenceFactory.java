@@ -0,0 +1,82 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.io.Serializable;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFactory;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * A coordinate sequence factory storing the coordinates of a sequence in a single packed double[] array,
+ * with a fixed dimension (2 by default, that is x and y only).
+ *
+ * Compared to the default JTS coordinate sequences (one Coordinate object per vertex, with x, y and z),
+ * this roughly divides the memory footprint of the geometries by 3 and improves cache locality.
+ *
+ * Note: the coordinates returned by getCoordinates() for geometries using this factory are copies.
+ * Modifying them does not modify the geometry. Use the coordinate sequence setOrdinate method instead.
+ *
+ * @author julien Gaffuri
+ *
+ */
+public class CompactCoordinateSequenceFactory implements CoordinateSequenceFactory, Serializable {
+	private static final long serialVersionUID = 6129469713475282154L;
+
+	/** The 2D factory (x,y). */
+	public static final CompactCoordinateSequenceFactory XY = new CompactCoordinateSequenceFactory(2);
+
+	/** The 3D factory (x,y,z). */
+	public static final CompactCoordinateSequenceFactory XYZ = new CompactCoordinateSequenceFactory(3);
+
+	private static final PackedCoordinateSequenceFactory PCSF = PackedCoordinateSequenceFactory.DOUBLE_FACTORY;
+
+	private int dimension;
+	/** @return The dimension of the sequences created from coordinates or other sequences. */
+	public int getDimension() { return dimension; }
+
+	/**
+	 * @param dimension The dimension of the sequences: 2 for (x,y), 3 for (x,y,z).
+	 */
+	public CompactCoordinateSequenceFactory(int dimension) {
+		if(dimension<2 || dimension>3)
+			throw new IllegalArgumentException("Unsupported coordinate dimension: " + dimension);
+		this.dimension = dimension;
+	}
+
+	@Override
+	public CoordinateSequence create(Coordinate[] coordinates) {
+		int n = coordinates==null? 0 : coordinates.length;
+		double[] cs = new double[n*dimension];
+		for(int i=0; i<n; i++) {
+			Coordinate c = coordinates[i];
+			cs[i*dimension] = c.x;
+			cs[i*dimension+1] = c.y;
+			if(dimension == 3) cs[i*dimension+2] = c.getZ();
+		}
+		return PCSF.create(cs, dimension);
+	}
+
+	@Override
+	public CoordinateSequence create(CoordinateSequence coordSeq) {
+		int n = coordSeq.size();
+		boolean hasZ = dimension == 3 && coordSeq.getDimension() >= 3;
+		double[] cs = new double[n*dimension];
+		for(int i=0; i<n; i++) {
+			cs[i*dimension] = coordSeq.getX(i);
+			cs[i*dimension+1] = coordSeq.getY(i);
+			if(dimension == 3) cs[i*dimension+2] = hasZ? coordSeq.getOrdinate(i, CoordinateSequence.Z) : Coordinate.NULL_ORDINATE;
+		}
+		return PCSF.create(cs, dimension);
+	}
+
+	//sequences created empty are filled by the caller, possibly with more ordinates: keep the requested dimension
+	@Override
+	public CoordinateSequence create(int size, int dimension) {
+		return PCSF.create(size, dimension);
+	}
+
+}
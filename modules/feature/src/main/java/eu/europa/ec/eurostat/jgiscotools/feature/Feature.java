@@ -18,11 +18,16 @@ import org.locationtech.jts.geom.Geometry;
  */
 public class Feature {
 
-	/** The feature identifier */
+	/** The feature identifier. Built lazily from the numeric identifier, if not set. */
 	private String id;
 
+	/** The feature numeric identifier, generated on creation. -1 if the identifier was set as a string. */
+	private long numId;
+
 	/** @return The feature identifier. */
 	public String getID() {
+		if(id == null && numId >= 0)
+			id = String.valueOf(numId);
 		return id;
 	}
 
@@ -33,16 +38,24 @@ public class Feature {
 	 */
 	public void setID(String id) {
 		this.id = id;
+		this.numId = -1;
+	}
+
+	/**
+	 * @return The compact numeric identifier generated on creation, or -1 if the identifier was set as a string.
+	 */
+	public long getNumID() {
+		return numId;
 	}
 
 	/**
 	 * 
 	 */
 	public Feature() {
-		id = String.valueOf(ID++);
+		numId = ID.next();
 	}
 
-	private static int ID = 1000;
+	private static final IdGenerator ID = new IdGenerator(1000);
 
 	/** The feature Geometry */
 	private Geometry geometry;
@@ -5,15 +5,22 @@ package eu.europa.ec.eurostat.jgiscotools.feature;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.geotools.geometry.jts.GeometryClipper;
 import org.geotools.geometry.jts.JTS;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
@@ -23,10 +30,14 @@ import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.MultiLineString;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.index.quadtree.Quadtree;
 import org.locationtech.jts.index.strtree.STRtree;
 import org.locationtech.jts.operation.union.CascadedPolygonUnion;
 
+import eu.europa.ec.eurostat.jgiscotools.util.SpaceFillingCurve;
+
 
 /**
  * @author julien Gaffuri
@@ -58,6 +69,41 @@ public class FeatureUtil {
 	}
 
 
+	/**
+	 * Sort features along a space filling curve of their envelope centres,
+	 * so that features close in space are close in the list.
+	 * This improves the cache locality and the balance of the spatial algorithms processing the features in list order.
+	 * Features without geometry are put at the end. The sort is stable.
+	 * 
+	 * @param fs The features to sort.
+	 * @param curve The curve to use.
+	 * @param parallel Set to true to compute the curve indices and to sort in parallel.
+	 */
+	public static <T extends Feature> void sortSpatially(List<T> fs, SpaceFillingCurve curve, boolean parallel) {
+		int n = fs.size();
+		if(n <= 1) return;
+
+		//get envelope centres
+		double[] xs = new double[n], ys = new double[n];
+		IntStream st = IntStream.range(0, n); if(parallel) st = st.parallel();
+		st.forEach(i -> {
+			Geometry g = fs.get(i).getGeometry();
+			if(g == null || g.isEmpty()) { xs[i] = Double.NaN; ys[i] = Double.NaN; return; }
+			Envelope env = g.getEnvelopeInternal();
+			xs[i] = 0.5*(env.getMinX()+env.getMaxX());
+			ys[i] = 0.5*(env.getMinY()+env.getMaxY());
+		});
+		st.close();
+
+		//reorder
+		int[] order = curve.getOrder(xs, ys, n, parallel);
+		ArrayList<T> sorted = new ArrayList<T>(n);
+		for(int i=0; i<n; i++) sorted.add(fs.get(order[i]));
+		for(int i=0; i<n; i++) fs.set(i, sorted.get(i));
+	}
+	public static <T extends Feature> void sortSpatially(List<T> fs, boolean parallel) { sortSpatially(fs, SpaceFillingCurve.HILBERT, parallel); }
+
+
 	//get envelope of features
 	public static <T extends Feature> Envelope getEnvelope(Collection<T> features) { return getEnvelope(features, 1); }
 	public static <T extends Feature> Envelope getEnvelope(Collection<T> features, double enlargementFactor) {
@@ -192,7 +238,13 @@ public class FeatureUtil {
 
 
 
-	public static void dissolveById(Collection<Feature> fs) {
+	/**
+	 * Merge the features having the same identifier. Their geometries are unioned.
+	 * 
+	 * @param fs The features. The merged features are removed.
+	 * @param parallel Set to true to union the groups in parallel. Each group is unioned at once, so that the result is the same as the sequential one.
+	 */
+	public static void dissolveById(Collection<Feature> fs, boolean parallel) {
 		//index features by id
 		HashMap<String,List<Feature>> ind = new HashMap<String,List<Feature>>();
 		for(Feature f : fs) {
@@ -204,18 +256,34 @@ public class FeatureUtil {
 			col.add(f);
 		}
 
-		//merge features having same id
-		for(List<Feature> col : ind.values()) {
-			if(col.size() == 1) continue;
-			Collection<MultiPolygon> polys = new ArrayList<MultiPolygon>();
-			for(Feature f : col) polys.add((MultiPolygon) f.getGeometry());
-			MultiPolygon mp = (MultiPolygon) JTSGeomUtil.toMulti(CascadedPolygonUnion.union(polys));
-			for(int i=1; i<col.size(); i++) fs.remove(col.get(i));
-			col.get(0).setGeometry(mp);
+		//union the geometries of the features having same id
+		List<List<Feature>> cols = new ArrayList<List<Feature>>();
+		for(List<Feature> col : ind.values()) if(col.size() > 1) cols.add(col);
+		MultiPolygon[] mps = new MultiPolygon[cols.size()];
+		IntStream st = IntStream.range(0, cols.size()); if(parallel) st = st.parallel();
+		st.forEach(i -> mps[i] = union(cols.get(i)));
+		st.close();
+
+		//merge
+		Set<Feature> toRemove = Collections.newSetFromMap(new IdentityHashMap<Feature, Boolean>());
+		for(int i=0; i<cols.size(); i++) {
+			List<Feature> col = cols.get(i);
+			for(int j=1; j<col.size(); j++) toRemove.add(col.get(j));
+			col.get(0).setGeometry(mps[i]);
 		}
+		fs.removeAll(toRemove);
 	}
-
-	public static Collection<Feature> dissolve(Collection<Feature> fs, String propName) {
+	public static void dissolveById(Collection<Feature> fs) { dissolveById(fs, false); }
+
+	/**
+	 * Merge the features having the same value for a property. Their geometries are unioned.
+	 * 
+	 * @param fs The features.
+	 * @param propName The property.
+	 * @param parallel Set to true to union the groups in parallel. Each group is unioned at once, so that the result is the same as the sequential one.
+	 * @return The merged features, with only the property as attribute.
+	 */
+	public static Collection<Feature> dissolve(Collection<Feature> fs, String propName, boolean parallel) {
 		//index features by property
 		HashMap<String,List<Feature>> ind = new HashMap<String,List<Feature>>();
 		for(Feature f : fs) {
@@ -228,19 +296,34 @@ public class FeatureUtil {
 			col.add(f);
 		}
 
-		//merge features having same property
-		Collection<Feature> out = new ArrayList<Feature>();
+		//create output features, in the same order as the groups
+		List<Feature> out = new ArrayList<Feature>();
+		List<List<Feature>> cols = new ArrayList<List<Feature>>();
 		for(Entry<String,List<Feature>> e : ind.entrySet()) {
 			Feature f = new Feature();
 			f.setAttribute(propName, e.getKey());
-			Collection<MultiPolygon> polys = new ArrayList<MultiPolygon>();
-			for(Feature f_ : e.getValue()) polys.add((MultiPolygon) f_.getGeometry());
-			MultiPolygon mp = (MultiPolygon) JTSGeomUtil.toMulti(CascadedPolygonUnion.union(polys));
-			f.setGeometry(mp);
 			out.add(f);
+			cols.add(e.getValue());
 		}
+
+		//merge features having same property
+		IntStream st = IntStream.range(0, cols.size()); if(parallel) st = st.parallel();
+		st.forEach(i -> out.get(i).setGeometry( union(cols.get(i)) ));
+		st.close();
 		return out;
 	}
+	public static Collection<Feature> dissolve(Collection<Feature> fs, String propName) { return dissolve(fs, propName, false); }
+
+	//union the (multi)polygonal geometries of some features
+	private static MultiPolygon union(List<Feature> col) {
+		return (MultiPolygon) JTSGeomUtil.toMulti(CascadedPolygonUnion.union(getPolygonals(col)));
+	}
+
+	private static Collection<Geometry> getPolygonals(List<Feature> col) {
+		Collection<Geometry> polys = new ArrayList<Geometry>();
+		for(Feature f : col) polys.add((MultiPolygon) f.getGeometry());
+		return polys;
+	}
 
 
 	public static Collection<Feature> toFeatures(Collection<Map<String, Object>> ps) {
@@ -351,6 +434,35 @@ public class FeatureUtil {
 	}*/
 
 
+	/**
+	 * Clip features with an envelope.
+	 * The features entirely inside the envelope are kept as they are. The other ones are clipped with a fast rectangle clipping.
+	 * 
+	 * @param fs The features. The geometries of the features intersecting the envelope boundary are changed.
+	 * @param env The envelope.
+	 * @param parallel Set to true to clip the features in parallel.
+	 * @return The features intersecting the envelope, in the input order.
+	 */
+	public static ArrayList<Feature> clip(Collection<Feature> fs, Envelope env, boolean parallel) {
+		GeometryClipper gc = new GeometryClipper(env);
+		Stream<Feature> st = fs.stream(); if(parallel) st = st.parallel();
+		List<Geometry> gs = st.map(f -> {
+			Geometry g = f.getGeometry();
+			if(g == null) return null;
+			Envelope fEnv = g.getEnvelopeInternal();
+			if(!env.intersects(fEnv)) return null;
+			if(env.contains(fEnv)) return g;
+			try {
+				return gc.clip(g, true);
+			} catch (Exception e) {
+				e.printStackTrace();
+				return g;
+			}
+		}).collect(Collectors.toList());
+		st.close();
+		return setClipped(fs, gs);
+	}
+
 	public static ArrayList<Feature> clip(Collection<Feature> fs, Envelope env) {
 		ArrayList<Feature> out = new ArrayList<Feature>();
 		Polygon envG = JTS.toGeometry(env);
@@ -374,6 +486,57 @@ public class FeatureUtil {
 		return out;
 	}
 
+	/**
+	 * Clip features with a polygonal mask.
+	 * The mask is prepared, so that the features entirely inside or outside it are quickly detected and not clipped.
+	 * The other ones are intersected with the part of the mask within their envelope only.
+	 * 
+	 * @param fs The features. The geometries of the features intersecting the mask boundary are changed.
+	 * @param mask The (multi)polygonal mask.
+	 * @param parallel Set to true to clip the features in parallel.
+	 * @return The features intersecting the mask, in the input order.
+	 */
+	public static ArrayList<Feature> clip(Collection<Feature> fs, Geometry mask, boolean parallel) {
+		if(mask.isRectangle()) return clip(fs, mask.getEnvelopeInternal(), parallel);
+
+		Envelope maskEnv = mask.getEnvelopeInternal();
+		PreparedGeometry pg = PreparedGeometryFactory.prepare(mask);
+		Stream<Feature> st = fs.stream(); if(parallel) st = st.parallel();
+		List<Geometry> gs = st.map(f -> {
+			Geometry g = f.getGeometry();
+			if(g == null) return null;
+			if(!maskEnv.intersects(g.getEnvelopeInternal())) return null;
+			if(pg.contains(g)) return g;
+			if(!pg.intersects(g)) return null;
+			try {
+				//intersect with the part of the mask around the geometry only. Not for flat envelopes, which may clip out the whole mask.
+				Envelope gEnv = g.getEnvelopeInternal();
+				if(gEnv.getWidth() == 0 || gEnv.getHeight() == 0) return g.intersection(mask);
+				Geometry mask_ = new GeometryClipper(gEnv).clip(mask, true);
+				if(mask_ == null || mask_.isEmpty()) return null;
+				return g.intersection(mask_);
+			} catch (Exception e) {
+				e.printStackTrace();
+				return g;
+			}
+		}).collect(Collectors.toList());
+		st.close();
+		return setClipped(fs, gs);
+	}
+
+	//set the clipped geometries of features, in the stream order. Return the features whose clipped geometry is not empty.
+	private static ArrayList<Feature> setClipped(Collection<Feature> fs, List<Geometry> gs) {
+		ArrayList<Feature> out = new ArrayList<Feature>();
+		Iterator<Geometry> it = gs.iterator();
+		for(Feature f : fs) {
+			Geometry g = it.next();
+			if(g == null || g.isEmpty()) continue;
+			if(g != f.getGeometry()) f.setGeometry(g);
+			out.add(f);
+		}
+		return out;
+	}
+
 
 
 
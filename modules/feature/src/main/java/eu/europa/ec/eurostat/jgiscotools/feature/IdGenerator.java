@@ -0,0 +1,33 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe generator of unique numeric identifiers.
+ * Identifiers are compact long values. Their string form, when needed, should be produced lazily.
+ *
+ * @author julien Gaffuri
+ *
+ */
+public class IdGenerator {
+
+	private final AtomicLong counter;
+
+	/**
+	 * @param start The first identifier to generate.
+	 */
+	public IdGenerator(long start) {
+		this.counter = new AtomicLong(start);
+	}
+
+	/**
+	 * @return A new identifier, unique for this generator, even when called from several threads.
+	 */
+	public long next() {
+		return counter.getAndIncrement();
+	}
+
+}
@@ -18,20 +18,61 @@ import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.index.SpatialIndex;
+import org.locationtech.jts.index.quadtree.Quadtree;
 import org.locationtech.jts.operation.linemerge.LineMerger;
 
 public class JTSGeomUtil {
 	public final static Logger LOGGER = LogManager.getLogger(JTSGeomUtil.class.getName());
 
 
+	//shared geometry factory, with the default JTS coordinate sequences
+	private static volatile GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+	/**
+	 * @return The geometry factory shared by the library to create new geometries.
+	 */
+	public static GeometryFactory getGeometryFactory() { return GEOMETRY_FACTORY; }
+
+	/**
+	 * Change the geometry factory shared by the library.
+	 * The default one is new GeometryFactory().
+	 * 
+	 * @param gf
+	 */
+	public static void setGeometryFactory(GeometryFactory gf) { GEOMETRY_FACTORY = gf; }
+
+	/**
+	 * A geometry factory storing the coordinates in compact 2D coordinate sequences.
+	 * This saves memory for large datasets, but the z values are dropped and the coordinates
+	 * returned by the geometries are copies: Changing them in place has no effect on the geometry.
+	 * 
+	 * @return
+	 */
+	public static GeometryFactory getCompactGeometryFactory() { return COMPACT_GEOMETRY_FACTORY; }
+	private static final GeometryFactory COMPACT_GEOMETRY_FACTORY = new GeometryFactory(CompactCoordinateSequenceFactory.XY);
+
+	/**
+	 * Copy a geometry into a geometry factory, if it does not use it already.
+	 * 
+	 * @param g
+	 * @param gf
+	 * @return
+	 */
+	public static Geometry toGeometryFactory(Geometry g, GeometryFactory gf) {
+		if(g == null || g.getFactory() == gf) return g;
+		return gf.createGeometry(g);
+	}
+	public static Geometry toGeometryFactory(Geometry g) { return toGeometryFactory(g, GEOMETRY_FACTORY); }
+
+
 	//easy and quick creation of geometries, mainly for testing purposes
 	public static Coordinate[] createCoordinates(double... cs) {
 		Coordinate[] cs_ = new Coordinate[cs.length/2];
 		for(int i=0; i<cs_.length; i++) cs_[i] = new Coordinate(cs[2*i],cs[2*i+1]);
 		return cs_;
 	}
-	public static LineString createLineString(double... cs) { return new GeometryFactory().createLineString(createCoordinates(cs)); }
-	public static Polygon createPolygon(double... cs) { return new GeometryFactory().createPolygon(createCoordinates(cs)); }
+	public static LineString createLineString(double... cs) { return GEOMETRY_FACTORY.createLineString(createCoordinates(cs)); }
+	public static Polygon createPolygon(double... cs) { return GEOMETRY_FACTORY.createPolygon(createCoordinates(cs)); }
 
 
 	//clean geometry
@@ -77,13 +118,13 @@ public class JTSGeomUtil {
 		Coordinate[] cs = new Coordinate[]{new Coordinate(env.getMinX(),env.getMinY()), new Coordinate(env.getMaxX(),env.getMinY()), new Coordinate(env.getMaxX(),env.getMaxY()), new Coordinate(env.getMinX(),env.getMaxY()), new Coordinate(env.getMinX(),env.getMinY())};
 		return gf.createPolygon(cs);
 	}
-	public static Geometry getGeometry(Envelope env) { return getGeometry(env, new GeometryFactory()); }
+	public static Geometry getGeometry(Envelope env) { return getGeometry(env, GEOMETRY_FACTORY); }
 	public static LineString getBoundary(Envelope env, GeometryFactory gf) { return getGeometry(env, gf).getExteriorRing(); }
-	public static LineString getBoundary(Envelope env) { return getBoundary(env, new GeometryFactory()); }
+	public static LineString getBoundary(Envelope env) { return getBoundary(env, GEOMETRY_FACTORY); }
 
 	public static Collection<Point> getPointsFromCoordinates(Collection<Coordinate> cs) {
 		Collection<Point> out = new ArrayList<Point>();
-		GeometryFactory gf = new GeometryFactory();
+		GeometryFactory gf = GEOMETRY_FACTORY;
 		for(Coordinate c : cs) out.add(gf.createPoint(c));
 		return out;
 	}
@@ -97,6 +138,45 @@ public class JTSGeomUtil {
 		return out;
 	}
 
+	//build a spatial index of geometries, to be used for repeated queries.
+	//a quadtree is used, so that geometries can still be added and removed.
+	public static <T extends Geometry> Quadtree getQuadtree(Collection<T> geoms) {
+		Quadtree index = new Quadtree();
+		for(Geometry geom : geoms) index.insert(geom.getEnvelopeInternal(), geom);
+		return index;
+	}
+
+	//retrieve some geometries close to a position, using a spatial index of the geometries.
+	//as without index, the geometries are those whose envelope intersects the square around the position.
+	public static Collection<Geometry> getGeometriesCloseTo(Coordinate c, SpatialIndex index, double squareDistance) {
+		Collection<Geometry> out = new HashSet<Geometry>();
+		Envelope env = new Envelope(c.x-squareDistance, c.x+squareDistance, c.y-squareDistance, c.y+squareDistance);
+		for(Object o : index.query(env)) {
+			Geometry geom = (Geometry) o;
+			if(geom.getEnvelopeInternal().intersects(env)) out.add(geom);
+		}
+		return out;
+	}
+
+	//retrieve the geometries within a distance to a position, using a spatial index of the geometries
+	public static Collection<Geometry> getGeometriesWithinDistance(Coordinate c, SpatialIndex index, double distance) {
+		return getGeometriesWithinDistance(GEOMETRY_FACTORY.createPoint(c), index, distance);
+	}
+
+	//retrieve the geometries within a distance to a geometry, using a spatial index of the geometries.
+	//the index is queried with the expanded envelope, then the exact distance is checked, with early termination.
+	public static Collection<Geometry> getGeometriesWithinDistance(Geometry g, SpatialIndex index, double distance) {
+		Collection<Geometry> out = new HashSet<Geometry>();
+		Envelope env = new Envelope(g.getEnvelopeInternal());
+		env.expandBy(distance);
+		for(Object o : index.query(env)) {
+			Geometry geom = (Geometry) o;
+			if(!env.intersects(geom.getEnvelopeInternal())) continue;
+			if(geom.isWithinDistance(g, distance)) out.add(geom);
+		}
+		return out;
+	}
+
 
 	//get polygon rings
 	public static Collection<LineString> getRings(Polygon p){
@@ -0,0 +1,406 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import eu.europa.ec.eurostat.jgiscotools.util.SpaceFillingCurve;
+
+/**
+ * A packed, immutable, R-tree spatial index of a list of features.
+ * The leaves are the feature envelopes, sorted along a Hilbert curve, and grouped by nodes of fixed size.
+ * The whole tree is stored in two flat arrays: the node boxes and the node child/feature indices.
+ *
+ * Queries return the indices of the features in the list the index was built from.
+ *
+ * The index can be saved to a file, typically next to the dataset file, and memory-mapped back
+ * on the next run, instead of being rebuilt. The index file records the size and modification
+ * date of the dataset file, so that an outdated index is detected.
+ * Since the feature indices are valid only if the features are loaded in the same order, the index file records
+ * also a fingerprint of the feature envelopes, in order, which is checked when the index is reused.
+ * The envelopes are used rather than the feature identifiers, which may not be stable from one run to the other.
+ *
+ * @author julien Gaffuri
+ *
+ */
+public class PackedRTree {
+	private final static Logger LOGGER = LogManager.getLogger(PackedRTree.class.getName());
+
+	/** The default number of children per node. */
+	public static final int DEFAULT_NODE_SIZE = 16;
+
+	/** The extension of the index files. */
+	public static final String FILE_EXTENSION = ".prtree";
+
+	private static final long MAGIC = 0x4A475452545245L; //"JGTRTRE"
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 48;
+
+	//the number of features
+	private int n;
+	//the number of children per node
+	private int nodeSize;
+	//the fingerprint of the features
+	private long fingerprint;
+	//the end position of each level, from the leaves to the root
+	private int[] levelBounds;
+	//the node boxes, as minX,minY,maxX,maxY
+	private DoubleBuffer boxes;
+	//for leaves, the feature index. For other nodes, the position of the first child
+	private IntBuffer indices;
+
+	/** @return The number of features indexed. */
+	public int size() { return n; }
+	/** @return The fingerprint of the features indexed. See {@link #getFingerprint(List)}. */
+	public long getFingerprint() { return fingerprint; }
+
+	private PackedRTree(int n, int nodeSize) {
+		this.n = n;
+		this.nodeSize = nodeSize;
+		this.levelBounds = getLevelBounds(n, nodeSize);
+	}
+
+	private int getNodesNumber() {
+		return levelBounds.length == 0? 0 : levelBounds[levelBounds.length-1];
+	}
+
+	private static int[] getLevelBounds(int n, int nodeSize) {
+		if(n == 0) return new int[0];
+		ArrayList<Integer> lb = new ArrayList<>();
+		int cnt = n, nb = n;
+		lb.add(nb);
+		do {
+			cnt = (cnt + nodeSize - 1) / nodeSize;
+			nb += cnt;
+			lb.add(nb);
+		} while(cnt != 1);
+		return lb.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+
+
+	/**
+	 * Build the index of some features.
+	 *
+	 * @param fs The features.
+	 * @param nodeSize The number of children per node.
+	 * @param parallel Set to true to build the index in parallel.
+	 * @return
+	 */
+	public static <T extends Feature> PackedRTree build(List<T> fs, int nodeSize, boolean parallel) {
+		return build(getEnvelopes(fs, parallel), fs.size(), nodeSize, parallel);
+	}
+	public static <T extends Feature> PackedRTree build(List<T> fs, boolean parallel) { return build(fs, DEFAULT_NODE_SIZE, parallel); }
+
+	//build the index from the feature envelopes
+	private static PackedRTree build(double[] envs, int n, int nodeSize, boolean parallel) {
+		PackedRTree rt = new PackedRTree(n, nodeSize);
+		rt.fingerprint = getFingerprint(envs, n);
+		int nb = rt.getNodesNumber();
+		double[] bs = new double[4*nb];
+		int[] is = new int[nb];
+
+		if(n > 0) {
+			//sort the leaves along the Hilbert curve
+			int[] order = getHilbertOrder(envs, n, parallel);
+			IntStream st = IntStream.range(0, n); if(parallel) st = st.parallel();
+			st.forEach(p -> {
+				int i = order[p];
+				System.arraycopy(envs, 4*i, bs, 4*p, 4);
+				is[p] = i;
+			});
+			st.close();
+
+			//build upper levels
+			for(int l=0; l<rt.levelBounds.length-1; l++) {
+				int start = l==0? 0 : rt.levelBounds[l-1], end = rt.levelBounds[l];
+				int nbParents = rt.levelBounds[l+1] - end;
+				st = IntStream.range(0, nbParents); if(parallel) st = st.parallel();
+				st.forEach(j -> {
+					int parent = end + j;
+					int c0 = start + j*nodeSize, c1 = Math.min(c0 + nodeSize, end);
+					double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+					for(int c=c0; c<c1; c++) {
+						if(bs[4*c] < minX) minX = bs[4*c];
+						if(bs[4*c+1] < minY) minY = bs[4*c+1];
+						if(bs[4*c+2] > maxX) maxX = bs[4*c+2];
+						if(bs[4*c+3] > maxY) maxY = bs[4*c+3];
+					}
+					bs[4*parent] = minX; bs[4*parent+1] = minY; bs[4*parent+2] = maxX; bs[4*parent+3] = maxY;
+					is[parent] = c0;
+				});
+				st.close();
+			}
+		}
+
+		rt.boxes = DoubleBuffer.wrap(bs);
+		rt.indices = IntBuffer.wrap(is);
+		return rt;
+	}
+
+	//get the feature envelopes, as minX,minY,maxX,maxY. The envelope of features without geometry is inverted.
+	private static <T extends Feature> double[] getEnvelopes(List<T> fs, boolean parallel) {
+		int n = fs.size();
+		double[] envs = new double[4*n];
+		IntStream st = IntStream.range(0, n); if(parallel) st = st.parallel();
+		st.forEach(i -> {
+			Geometry g = fs.get(i).getGeometry();
+			if(g == null || g.isEmpty()) {
+				envs[4*i] = Double.POSITIVE_INFINITY; envs[4*i+1] = Double.POSITIVE_INFINITY;
+				envs[4*i+2] = Double.NEGATIVE_INFINITY; envs[4*i+3] = Double.NEGATIVE_INFINITY;
+				return;
+			}
+			Envelope env = g.getEnvelopeInternal();
+			envs[4*i] = env.getMinX(); envs[4*i+1] = env.getMinY();
+			envs[4*i+2] = env.getMaxX(); envs[4*i+3] = env.getMaxY();
+		});
+		st.close();
+		return envs;
+	}
+
+	//get the order of envelopes along the Hilbert curve of their centres. Empty envelopes are put at the end.
+	private static int[] getHilbertOrder(double[] envs, int n, boolean parallel) {
+		double[] xs = new double[n], ys = new double[n];
+		for(int i=0; i<n; i++) {
+			if(envs[4*i] > envs[4*i+2]) { xs[i] = Double.NaN; ys[i] = Double.NaN; continue; }
+			xs[i] = 0.5*(envs[4*i]+envs[4*i+2]); ys[i] = 0.5*(envs[4*i+1]+envs[4*i+3]);
+		}
+		return SpaceFillingCurve.HILBERT.getOrder(xs, ys, n, parallel);
+	}
+
+	/**
+	 * Compute the fingerprint of a list of features, from their envelopes and order.
+	 * It is stored in the index files, to check that a saved index matches the features it is used with.
+	 *
+	 * @param fs
+	 * @return
+	 */
+	public static <T extends Feature> long getFingerprint(List<T> fs) {
+		return getFingerprint(getEnvelopes(fs, false), fs.size());
+	}
+
+	//FNV-1a hash of the envelope bits
+	private static long getFingerprint(double[] envs, int n) {
+		long h = 0xcbf29ce484222325L;
+		for(int i=0; i<4*n; i++) {
+			h ^= Double.doubleToLongBits(envs[i]);
+			h *= 0x100000001b3L;
+		}
+		return h ^ n;
+	}
+
+
+
+	/**
+	 * Find the features whose envelope intersects an envelope.
+	 *
+	 * @param env The query envelope.
+	 * @param visitor The function receiving the index of each feature found.
+	 */
+	public void query(Envelope env, IntConsumer visitor) {
+		if(n == 0 || env.isNull()) return;
+		double qMinX = env.getMinX(), qMinY = env.getMinY(), qMaxX = env.getMaxX(), qMaxY = env.getMaxY();
+
+		int[] stack = new int[16];
+		int sp = 0;
+		int node = getNodesNumber() - 1, level = levelBounds.length - 1;
+		while(true) {
+			int end = Math.min(node + nodeSize, levelBounds[level]);
+			for(int pos = node; pos < end; pos++) {
+				if(boxes.get(4*pos+2) < qMinX || boxes.get(4*pos+3) < qMinY || boxes.get(4*pos) > qMaxX || boxes.get(4*pos+1) > qMaxY) continue;
+				int index = indices.get(pos);
+				if(node < n) visitor.accept(index);
+				else {
+					if(sp+2 > stack.length) stack = Arrays.copyOf(stack, 2*stack.length);
+					stack[sp++] = index;
+					stack[sp++] = level - 1;
+				}
+			}
+			if(sp == 0) break;
+			level = stack[--sp];
+			node = stack[--sp];
+		}
+	}
+
+	/**
+	 * Find the features whose envelope intersects an envelope.
+	 *
+	 * @param env The query envelope.
+	 * @return The indices of the features found.
+	 */
+	public int[] query(Envelope env) {
+		IntStream.Builder b = IntStream.builder();
+		query(env, i -> b.add(i));
+		return b.build().toArray();
+	}
+
+	/**
+	 * Find the features whose envelope intersects an envelope.
+	 *
+	 * @param fs The features the index was built from.
+	 * @param env The query envelope.
+	 * @return The features found.
+	 */
+	public <T extends Feature> List<T> query(List<T> fs, Envelope env) {
+		List<T> out = new ArrayList<T>();
+		query(env, i -> out.add(fs.get(i)));
+		return out;
+	}
+
+
+
+	/**
+	 * Save the index to a file.
+	 * The index is written to a temporary file first, which then replaces the index file.
+	 *
+	 * @param file The index file.
+	 * @param dataset The dataset file the features were loaded from, to detect later if the index is outdated. Can be null.
+	 * @return true if the index was saved.
+	 */
+	public boolean save(File file, File dataset) {
+		File tmp = null;
+		try {
+			File dir = file.getAbsoluteFile().getParentFile();
+			tmp = File.createTempFile(file.getName(), ".tmp", dir);
+			write(tmp, dataset);
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		} catch (IOException e) {
+			LOGGER.error("Could not save index file " + file.getAbsolutePath() + ": " + e.getMessage());
+			if(tmp != null) tmp.delete();
+			return false;
+		}
+	}
+
+	//write the index to a file
+	private void write(File file, File dataset) throws IOException {
+		int nb = getNodesNumber();
+		try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer bb = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			bb.putLong(MAGIC).putInt(VERSION).putInt(nodeSize).putInt(n).putInt(nb);
+			bb.putLong(dataset==null? -1 : dataset.length()).putLong(dataset==null? -1 : dataset.lastModified());
+			bb.putLong(fingerprint);
+			bb.flip();
+			while(bb.hasRemaining()) fc.write(bb);
+
+			//write by chunks
+			ByteBuffer chunk = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			for(int i=0; i<4*nb; i++) {
+				if(chunk.remaining() < 8) { chunk.flip(); while(chunk.hasRemaining()) fc.write(chunk); chunk.clear(); }
+				chunk.putDouble(boxes.get(i));
+			}
+			for(int i=0; i<nb; i++) {
+				if(chunk.remaining() < 4) { chunk.flip(); while(chunk.hasRemaining()) fc.write(chunk); chunk.clear(); }
+				chunk.putInt(indices.get(i));
+			}
+			chunk.flip(); while(chunk.hasRemaining()) fc.write(chunk);
+		}
+	}
+
+	/**
+	 * Load an index from a file, by memory-mapping it.
+	 *
+	 * @param file The index file.
+	 * @param dataset The dataset file the features are loaded from. If not null, it is checked that the index is not outdated.
+	 * @return The index, or null if the file is not a valid index file, or is outdated.
+	 */
+	public static PackedRTree load(File file, File dataset) {
+		return load(file, dataset, null);
+	}
+
+	//load an index from a file. The header is checked before the body is mapped.
+	//if a fingerprint is specified and the one of the file is different, null is returned.
+	private static PackedRTree load(File file, File dataset, Long expectedFingerprint) {
+		if(!file.exists()) return null;
+		try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(fc.size() < HEADER_SIZE) return null;
+			ByteBuffer bb = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while(bb.hasRemaining() && fc.read(bb) >= 0) {}
+			bb.flip();
+			if(bb.getLong() != MAGIC || bb.getInt() != VERSION) {
+				LOGGER.warn("Not a valid index file: " + file.getAbsolutePath());
+				return null;
+			}
+			int nodeSize = bb.getInt(), n = bb.getInt(), nb = bb.getInt();
+			long dsLength = bb.getLong(), dsLastModified = bb.getLong(), fingerprint = bb.getLong();
+			if(dataset != null && (dataset.length() != dsLength || dataset.lastModified() != dsLastModified)) {
+				if(LOGGER.isDebugEnabled()) LOGGER.debug("Outdated index file: " + file.getAbsolutePath());
+				return null;
+			}
+			if(expectedFingerprint != null && expectedFingerprint.longValue() != fingerprint) {
+				LOGGER.warn("Index file " + file.getAbsolutePath() + " does not match the features.");
+				return null;
+			}
+
+			PackedRTree rt = new PackedRTree(n, nodeSize);
+			rt.fingerprint = fingerprint;
+			if(rt.getNodesNumber() != nb || fc.size() != HEADER_SIZE + 36L*nb) {
+				LOGGER.warn("Corrupted index file: " + file.getAbsolutePath());
+				return null;
+			}
+			rt.boxes = fc.map(MapMode.READ_ONLY, HEADER_SIZE, 32L*nb).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+			rt.indices = fc.map(MapMode.READ_ONLY, HEADER_SIZE + 32L*nb, 4L*nb).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			return rt;
+		} catch (IOException e) {
+			LOGGER.warn("Could not load index file " + file.getAbsolutePath() + ": " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * @param datasetPath The dataset file path.
+	 * @return The default index file, next to the dataset file.
+	 */
+	public static File getIndexFile(String datasetPath) {
+		return new File(datasetPath + FILE_EXTENSION);
+	}
+
+	/**
+	 * Get the index of features loaded from a dataset file.
+	 * If an up-to-date index file of the same features, in the same order, exists next to the dataset file, it is memory-mapped.
+	 * Otherwise, the index is built and saved next to the dataset file, for the next runs.
+	 *
+	 * @param fs The features, loaded from the dataset file.
+	 * @param datasetPath The dataset file path.
+	 * @param parallel Set to true to build the index in parallel, if needed.
+	 * @return
+	 */
+	public static <T extends Feature> PackedRTree get(List<T> fs, String datasetPath, boolean parallel) {
+		File dataset = new File(datasetPath);
+		File file = getIndexFile(datasetPath);
+		double[] envs = getEnvelopes(fs, parallel);
+		//the fingerprint is checked before the file is mapped, so that it can be replaced
+		PackedRTree rt = load(file, dataset, getFingerprint(envs, fs.size()));
+		if(rt != null && rt.size() == fs.size()) return rt;
+		rt = build(envs, fs.size(), DEFAULT_NODE_SIZE, parallel);
+		rt.save(file, dataset);
+		return rt;
+	}
+
+}
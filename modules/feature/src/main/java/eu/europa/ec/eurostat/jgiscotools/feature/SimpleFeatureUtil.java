@@ -3,19 +3,29 @@
  */
 package eu.europa.ec.eurostat.jgiscotools.feature;
 
+import java.io.Closeable;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.feature.DefaultFeatureCollection;
+import org.geotools.feature.collection.AbstractFeatureCollection;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.opengis.feature.Property;
@@ -65,6 +75,132 @@ public class SimpleFeatureUtil {
 		return f;
 	}
 
+	/**
+	 * Convert a single GeoTools SimpleFeature into feature.
+	 * 
+	 * @param sf
+	 * @param attId
+	 * @return
+	 */
+	public static Feature get(SimpleFeature sf, String attId){
+		return get(sf, attId, getAttributeNames(sf.getFeatureType()));
+	}
+
+	/**
+	 * Wrap GeoTools SimpleFeatures as features, without copy.
+	 * The features are converted on the fly, while iterating. The schema is analysed once.
+	 * NB: New feature objects are returned at each iteration: Changes made to them are not kept.
+	 * NB: The underlying GeoTools iterator, which may hold a file or database connection, is closed once the iteration is over.
+	 * The iterators are Closeable: An iteration stopped before its end must be closed with ((Closeable)it).close().
+	 * 
+	 * @param sfs
+	 * @param attId
+	 * @return
+	 */
+	public static Collection<Feature> asFeatures(SimpleFeatureCollection sfs, String attId) {
+		return new FeatureView(sfs, attId);
+	}
+
+	/**
+	 * Wrap features as a GeoTools SimpleFeatureCollection, without copy.
+	 * The simple features are built on the fly, while iterating. The schema is analysed once.
+	 * 
+	 * @param fs
+	 * @param ft
+	 * @return
+	 */
+	public static SimpleFeatureCollection asSimpleFeatureCollection(Collection<? extends Feature> fs, SimpleFeatureType ft) {
+		return new SimpleFeatureView(fs, ft);
+	}
+
+	//a view of simple features as features
+	private static class FeatureView extends AbstractCollection<Feature> {
+		private SimpleFeatureCollection sfs;
+		private String attId;
+		private String[] attNames;
+
+		FeatureView(SimpleFeatureCollection sfs, String attId) {
+			this.sfs = sfs;
+			this.attId = attId;
+			this.attNames = getAttributeNames(sfs.getSchema());
+		}
+
+		@Override
+		public int size() { return sfs.size(); }
+
+		@Override
+		public Iterator<Feature> iterator() { return new FeatureViewIterator(sfs.features()); }
+
+		@Override
+		public void forEach(Consumer<? super Feature> action) {
+			//ensure the iterator is closed, even if the action fails
+			try (FeatureViewIterator it = new FeatureViewIterator(sfs.features())) {
+				while(it.hasNext()) action.accept(it.next());
+			}
+		}
+
+		private class FeatureViewIterator implements Iterator<Feature>, Closeable {
+			private SimpleFeatureIterator it;
+			private boolean open = true;
+			FeatureViewIterator(SimpleFeatureIterator it) { this.it = it; }
+
+			@Override
+			public boolean hasNext() {
+				if(!open) return false;
+				if(it.hasNext()) return true;
+				close();
+				return false;
+			}
+
+			@Override
+			public Feature next() {
+				if(!hasNext()) throw new NoSuchElementException();
+				return get(it.next(), attId, attNames);
+			}
+
+			@Override
+			public void close() {
+				if(!open) return;
+				it.close(); open = false;
+			}
+		}
+	}
+
+	//a view of features as simple features
+	private static class SimpleFeatureView extends AbstractFeatureCollection {
+		private Collection<? extends Feature> fs;
+		private String[] attNames;
+
+		SimpleFeatureView(Collection<? extends Feature> fs, SimpleFeatureType ft) {
+			super(ft);
+			this.fs = fs;
+			this.attNames = getAttributeNames(ft);
+		}
+
+		@Override
+		protected Iterator<SimpleFeature> openIterator() {
+			Iterator<? extends Feature> it = fs.iterator();
+			SimpleFeatureBuilder sfb = new SimpleFeatureBuilder(schema);
+			return new Iterator<SimpleFeature>() {
+				@Override
+				public boolean hasNext() { return it.hasNext(); }
+				@Override
+				public SimpleFeature next() { return get(it.next(), sfb, attNames); }
+			};
+		}
+
+		@Override
+		public int size() { return fs.size(); }
+
+		@Override
+		public ReferencedEnvelope getBounds() {
+			ReferencedEnvelope env = new ReferencedEnvelope(schema.getCoordinateReferenceSystem());
+			for(Feature f : fs)
+				if(f.getGeometry() != null) env.expandToInclude(f.getGeometry().getEnvelopeInternal());
+			return env;
+		}
+	}
+
 	/**
 	 * Convert GeoTools SimpleFeatures into features
 	 * 
@@ -73,12 +209,28 @@ public class SimpleFeatureUtil {
 	 * @return
 	 */
 	public static ArrayList<Feature> get(SimpleFeatureCollection sfs, String attId) {
+		return get(sfs, attId, null);
+	}
+
+	/**
+	 * Convert GeoTools SimpleFeatureCollection into features,
+	 * with dictionary encoding of the string attribute values as the features are read.
+	 * 
+	 * @param sfs
+	 * @param attId
+	 * @param sd The dictionary. If null, no encoding is done.
+	 * @return
+	 */
+	public static ArrayList<Feature> get(SimpleFeatureCollection sfs, String attId, StringDictionary sd) {
 		SimpleFeatureIterator it = sfs.features();
 		SimpleFeatureType ft = sfs.getSchema();
 		String[] attNames = getAttributeNames(ft);
 		ArrayList<Feature> fs = new ArrayList<Feature>();
-		while( it.hasNext()  )
-			fs.add(get(it.next(), attId, attNames));
+		while( it.hasNext()  ) {
+			Feature f = get(it.next(), attId, attNames);
+			if(sd != null) sd.encode(f);
+			fs.add(f);
+		}
 		it.close();
 		return fs;
 	}
@@ -94,21 +246,24 @@ public class SimpleFeatureUtil {
 		DefaultFeatureCollection sfc = new DefaultFeatureCollection(null, ft);
 		SimpleFeatureBuilder sfb = new SimpleFeatureBuilder(ft);
 		String[] attNames = getAttributeNames(ft);
-		for(Feature f : fs) {
-			/*SimpleFeature sf = sfb.buildFeature(f.getID());
-			sf.setDefaultGeometry(f.getDefaultGeometry());
-			for(String attName : attNames)
-				sf.setAttribute(attName, f.getAttribute(attName));*/
-			Object[] data = new Object[attNames.length+1];
-			data[0] = f.getGeometry();
-			for(int i=0; i<attNames.length; i++)
-				data[i+1] = f.getAttribute(attNames[i]);
-			SimpleFeature sf = sfb.buildFeature(f.getID(), data);
-			sfc.add(sf);
-		}
+		for(Feature f : fs)
+			sfc.add(get(f, sfb, attNames));
 		return sfc;
 	}
 
+	//convert a feature into a GeoTools SimpleFeature
+	private static SimpleFeature get(Feature f, SimpleFeatureBuilder sfb, String[] attNames) {
+		/*SimpleFeature sf = sfb.buildFeature(f.getID());
+		sf.setDefaultGeometry(f.getDefaultGeometry());
+		for(String attName : attNames)
+			sf.setAttribute(attName, f.getAttribute(attName));*/
+		Object[] data = new Object[attNames.length+1];
+		data[0] = f.getGeometry();
+		for(int i=0; i<attNames.length; i++)
+			data[i+1] = f.getAttribute(attNames[i]);
+		return sfb.buildFeature(f.getID(), data);
+	}
+
 	private static String[] getAttributeNames(SimpleFeatureType ft){
 		ArrayList<String> atts = new ArrayList<String>();
 		for(int i=0; i<ft.getAttributeCount(); i++){
@@ -125,6 +280,9 @@ public class SimpleFeatureUtil {
 	}
 
 
+	/** A typical number of features to inspect to infer the schema of large collections. */
+	public static final int DEFAULT_SCHEMA_SAMPLE_SIZE = 10000;
+
 	/**
 	 * Get GeoTools FeatureType from features.
 	 * NB: All features are assumed to have the same attributes names/types and geometry types.
@@ -136,20 +294,47 @@ public class SimpleFeatureUtil {
 	 * @return
 	 */
 	public static <T extends Feature> SimpleFeatureType getFeatureType(Collection<T> fs, String geomColName, CoordinateReferenceSystem crs) {
-		SimpleFeatureTypeBuilder sftb = new SimpleFeatureTypeBuilder();
-		sftb.setCRS(crs);
-		sftb.setName("type");
-		sftb.setNamespaceURI("http://geotools.org");
-		sftb.setDefaultGeometry(geomColName);
+		return getFeatureType(fs, geomColName, crs, -1);
+	}
 
+	/**
+	 * Get GeoTools FeatureType from features, inspecting only a sample of them.
+	 * See {@link #getAttributeGeomTypes(Collection, String, int)}.
+	 * 
+	 * @param <T>
+	 * @param fs
+	 * @param geomColName
+	 * @param crs
+	 * @param sampleSize The maximum number of features inspected. If not positive, all features are inspected.
+	 * @return
+	 */
+	public static <T extends Feature> SimpleFeatureType getFeatureType(Collection<T> fs, String geomColName, CoordinateReferenceSystem crs, int sampleSize) {
 		if(fs.size() == 0) {
 			LOGGER.warn("Creating SimpleFeatureType from empty list of features.");
-			sftb.add(geomColName, Point.class);
-			return sftb.buildFeatureType();
+			HashMap<String,Class<?>> types = new HashMap<>();
+			types.put(geomColName, Point.class);
+			return getFeatureType(types, geomColName, crs);
 		}
+		return getFeatureType(getAttributeGeomTypes(fs, geomColName, sampleSize), geomColName, crs);
+	}
 
-		HashMap<String,Class<?>> types = getAttributeGeomTypes(fs, geomColName);
-		sftb.add(geomColName, types.get(geomColName));
+	/**
+	 * Get GeoTools FeatureType from declared attribute and geometry types.
+	 * 
+	 * @param types The attribute and geometry types, as returned by getAttributeGeomTypes. If the geometry type is missing, String is used, as for features without geometry.
+	 * @param geomColName
+	 * @param crs
+	 * @return
+	 */
+	public static SimpleFeatureType getFeatureType(Map<String, Class<?>> types, String geomColName, CoordinateReferenceSystem crs) {
+		SimpleFeatureTypeBuilder sftb = new SimpleFeatureTypeBuilder();
+		sftb.setCRS(crs);
+		sftb.setName("type");
+		sftb.setNamespaceURI("http://geotools.org");
+		sftb.setDefaultGeometry(geomColName);
+		//as for features without geometry
+		Class<?> gClass = types.get(geomColName);
+		sftb.add(geomColName, gClass == null? String.class : gClass);
 		for(String att : types.keySet()) {
 			if(geomColName.equals(att)) continue;
 			sftb.add(att, types.get(att));
@@ -180,32 +365,84 @@ public class SimpleFeatureUtil {
 	 * @return
 	 */
 	public static <T extends Feature> HashMap<String, Class<?>> getAttributeGeomTypes(Collection<T> fs, String geomColName) {
-		HashMap<String, Class<?>> out = new HashMap<>();
-		if(fs.size()==0) return out;
+		return getAttributeGeomTypes(fs, geomColName, -1);
+	}
 
-		//get all attributes
-		Set<String> atts = new HashSet<>();
+	/**
+	 * Get attribute and geometry types for a list of features, inspecting only a sample of them.
+	 * The sample is made of features evenly spread in the collection.
+	 * The attribute names, their types and the geometry type are retrieved from the sample only:
+	 * The attributes absent from the sample are ignored, and the ones without value in the sample are typed as String.
+	 * This suits homogeneous collections. For heterogeneous ones, inspect all features, or declare the types.
+	 * 
+	 * @param <T>
+	 * @param fs
+	 * @param geomColName
+	 * @param sampleSize The maximum number of features inspected. If not positive, all features are inspected.
+	 * @return
+	 */
+	public static <T extends Feature> HashMap<String, Class<?>> getAttributeGeomTypes(Collection<T> fs, String geomColName, int sampleSize) {
+		Collection<T> scanned = fs;
+		if(sampleSize > 0 && fs.size() > sampleSize) {
+			//get sample
+			ArrayList<T> sample = new ArrayList<T>(sampleSize);
+			double step = fs.size() / (double)sampleSize;
+			if(fs instanceof List) {
+				List<T> l = (List<T>) fs;
+				for(int i=0; i<sampleSize; i++) sample.add(l.get((int)(i*step)));
+			} else {
+				int i = 0;
+				double next = 0;
+				for(T f : fs) {
+					if(i++ < next) continue;
+					sample.add(f);
+					next += step;
+					if(sample.size() == sampleSize) break;
+				}
+			}
+			scanned = sample;
+		}
+		HashMap<String, Class<?>> out = scanAttributeTypes(scanned);
+		for(Entry<String, Class<?>> e : out.entrySet())
+			if(e.getValue() == null) e.setValue(String.class);
+
+		//geometry type
+		Class<?> gClass = getGeometryType(scanned);
+		if(gClass == null) gClass = String.class;
+		out.put(geomColName, gClass);
+		return out;
+	}
+
+	//get attribute types, in a single pass over the features. The type of attributes without value is null.
+	private static <T extends Feature> HashMap<String, Class<?>> scanAttributeTypes(Iterable<T> fs) {
+		HashMap<String, Class<?>> out = new HashMap<>();
+		Set<String> inconsistent = new HashSet<>();
 		for(Feature f : fs)
-			atts.addAll(f.getAttributes().keySet());
-
-		//attribute types
-		for(String att : atts) {
-			Class<?> attClass = null;
-			for(Feature f : fs) {
-				Object o = f.getAttribute(att);
-				if(o==null) continue;
+			for(Entry<String, Object> e : f.getAttributes().entrySet()) {
+				String att = e.getKey();
+				Object o = e.getValue();
+				if(o==null) { out.putIfAbsent(att, null); continue; }
+				if(inconsistent.contains(att)) continue;
+				Class<?> attClass = out.get(att);
 				Class<? extends Object> kl = o.getClass();
-				if(attClass==null) { attClass=kl; continue; }
+				if(attClass==null) { out.put(att, kl); continue; }
 				if(kl != attClass) {
 					LOGGER.warn("Inconsistant attribute type for " + att + ". Store it as String type.");
-					attClass = String.class;
-					break;
+					out.put(att, String.class);
+					inconsistent.add(att);
 				}
 			}
-			if(attClass == null) attClass = String.class;
-			out.put(att, attClass);
-		}
-		//geometry type
+		return out;
+	}
+
+	/**
+	 * Get the geometry type of features.
+	 * 
+	 * @param <T>
+	 * @param fs
+	 * @return The geometry type, Point if the features have different geometry types, or null if they have no geometry.
+	 */
+	public static <T extends Feature> Class<?> getGeometryType(Iterable<T> fs) {
 		Class<?> gClass = null;
 		for(Feature f : fs) {
 			Geometry o = f.getGeometry();
@@ -214,13 +451,10 @@ public class SimpleFeatureUtil {
 			if(gClass==null) { gClass=kl; continue; }
 			if(kl != gClass) {
 				LOGGER.warn("Inconsistant geometry type. Store it as Point type.");
-				gClass = Point.class;
-				break;
+				return Point.class;
 			}
 		}
-		if(gClass == null) gClass = String.class;
-		out.put(geomColName, gClass);
-		return out;
+		return gClass;
 	}
 
 	/**
@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Per-column dictionary encoding of string attribute values.
+ * All occurrences of a same value in a column are replaced by a single String instance.
+ * This reduces memory use for columns with repeated values (country codes, NUTS ids, categories, etc.)
+ * and speeds up equality tests, since equal values become identical.
+ *
+ * Columns with more distinct values than a cardinality limit are not encoded:
+ * their dictionary is dropped once the limit is reached.
+ *
+ * The dictionary is thread safe.
+ *
+ * @author julien Gaffuri
+ *
+ */
+public class StringDictionary {
+	private final static Logger LOGGER = LogManager.getLogger(StringDictionary.class.getName());
+
+	/** The default cardinality limit. */
+	public static final int DEFAULT_MAX_CARDINALITY = 100000;
+
+	private final int maxCardinality;
+
+	//the dictionaries, per column
+	private final ConcurrentHashMap<String, Map<String, String>> dicts = new ConcurrentHashMap<>();
+	//marker for the columns above the cardinality limit
+	private static final Map<String, String> DISABLED = new ConcurrentHashMap<>();
+
+	/**
+	 * @param maxCardinality The maximum number of distinct values of a column to be encoded.
+	 */
+	public StringDictionary(int maxCardinality) {
+		this.maxCardinality = maxCardinality;
+	}
+	public StringDictionary() { this(DEFAULT_MAX_CARDINALITY); }
+
+	/**
+	 * Get the unique instance of a column value.
+	 *
+	 * @param column
+	 * @param value
+	 * @return The unique instance of the value, or the value itself if the column is not encoded.
+	 */
+	public String encode(String column, String value) {
+		if(value == null) return null;
+		Map<String, String> dict = dicts.computeIfAbsent(column, c -> new ConcurrentHashMap<>());
+		if(dict == DISABLED) return value;
+		String v = dict.putIfAbsent(value, value);
+		if(v != null) return v;
+		if(dict.size() > maxCardinality) {
+			if(dicts.put(column, DISABLED) != DISABLED && LOGGER.isDebugEnabled())
+				LOGGER.debug("Cardinality limit reached for column " + column + ". It is not encoded.");
+		}
+		return value;
+	}
+
+	/**
+	 * Encode the string values of a row, in place.
+	 *
+	 * @param row
+	 */
+	public void encode(Map<String, String> row) {
+		for(Entry<String, String> e : row.entrySet())
+			e.setValue(encode(e.getKey(), e.getValue()));
+	}
+
+	/**
+	 * Encode the string attribute values of a feature, in place.
+	 *
+	 * @param f
+	 */
+	public void encode(Feature f) {
+		for(Entry<String, Object> e : f.getAttributes().entrySet()) {
+			if(!(e.getValue() instanceof String)) continue;
+			String v = encode(e.getKey(), (String) e.getValue());
+			//replace existing value: not a structural change of the map
+			if(v != e.getValue()) f.setAttribute(e.getKey(), v);
+		}
+	}
+
+	/**
+	 * Encode the string attribute values of features, in place.
+	 *
+	 * @param fs
+	 * @param maxCardinality The maximum number of distinct values of a column to be encoded.
+	 * @param parallel
+	 */
+	public static void encode(Collection<? extends Feature> fs, int maxCardinality, boolean parallel) {
+		StringDictionary sd = new StringDictionary(maxCardinality);
+		Stream<? extends Feature> st = fs.stream(); if(parallel) st = st.parallel();
+		st.forEach(f -> sd.encode(f));
+		st.close();
+	}
+
+}
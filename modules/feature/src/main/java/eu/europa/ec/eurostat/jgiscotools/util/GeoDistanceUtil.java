@@ -3,6 +3,8 @@
  */
 package eu.europa.ec.eurostat.jgiscotools.util;
 
+import java.util.stream.IntStream;
+
 import org.geotools.referencing.GeodeticCalculator;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
@@ -30,6 +32,129 @@ public class GeoDistanceUtil {
 		return getDistanceKM(c1.x, c1.y ,c2.x, c2.y);
 	}
 
+
+
+
+	//batch distance computation, with haversine formula.
+	//NB: the earth is considered as a sphere, so the distances may differ from the ellipsoidal ones above by up to 0.5%.
+
+	/** The mean earth radius, in km. */
+	public static final double EARTH_MEAN_RADIUS_KM = 6371.0088;
+
+	//the input size from which the batch computations are run in parallel
+	private static final int PARALLEL_THRESHOLD = 100000;
+
+	private static final int CHUNK_SIZE = 8192;
+
+	/**
+	 * Compute the distance between two points, with the haversine formula.
+	 * This is the per-pair version of the batch computations below.
+	 * 
+	 * @param slon
+	 * @param slat
+	 * @param dlon
+	 * @param dlat
+	 * @return The distance, in km.
+	 */
+	public static double getDistanceHaversineKM(double slon, double slat, double dlon, double dlat) {
+		double lat1 = slat * ProjectionUtil.degToRadFactor, lat2 = dlat * ProjectionUtil.degToRadFactor;
+		double sdLat = Math.sin(0.5 * (lat2 - lat1));
+		double sdLon = Math.sin(0.5 * (dlon - slon) * ProjectionUtil.degToRadFactor);
+		double h = sdLat*sdLat + Math.cos(lat1) * Math.cos(lat2) * sdLon*sdLon;
+		return 2 * EARTH_MEAN_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, h)));
+	}
+
+	/**
+	 * Compute the distances from one point to many points.
+	 * 
+	 * @param lon The longitude of the point.
+	 * @param lat The latitude of the point.
+	 * @param lons The longitudes of the other points.
+	 * @param lats The latitudes of the other points.
+	 * @param out The output distances, in km.
+	 * @param n The number of other points.
+	 */
+	public static void getDistancesKM(double lon, double lat, double[] lons, double[] lats, double[] out, int n) {
+		final double lonR = lon * ProjectionUtil.degToRadFactor, latR = lat * ProjectionUtil.degToRadFactor, cosLat = Math.cos(latR);
+		runChunks(n, (from, to) -> {
+			for(int i=from; i<to; i++) {
+				double lat2 = lats[i] * ProjectionUtil.degToRadFactor;
+				double sdLat = Math.sin(0.5 * (lat2 - latR));
+				double sdLon = Math.sin(0.5 * (lons[i] * ProjectionUtil.degToRadFactor - lonR));
+				double h = sdLat*sdLat + cosLat * Math.cos(lat2) * sdLon*sdLon;
+				out[i] = 2 * EARTH_MEAN_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, h)));
+			}
+		});
+	}
+
+	/**
+	 * Compute the distances between pairs of points: from (lons1[i],lats1[i]) to (lons2[i],lats2[i]).
+	 * 
+	 * @param lons1
+	 * @param lats1
+	 * @param lons2
+	 * @param lats2
+	 * @param out The output distances, in km.
+	 * @param n The number of pairs.
+	 */
+	public static void getDistancesKM(double[] lons1, double[] lats1, double[] lons2, double[] lats2, double[] out, int n) {
+		runChunks(n, (from, to) -> {
+			for(int i=from; i<to; i++) {
+				double lat1 = lats1[i] * ProjectionUtil.degToRadFactor, lat2 = lats2[i] * ProjectionUtil.degToRadFactor;
+				double sdLat = Math.sin(0.5 * (lat2 - lat1));
+				double sdLon = Math.sin(0.5 * (lons2[i] - lons1[i]) * ProjectionUtil.degToRadFactor);
+				double h = sdLat*sdLat + Math.cos(lat1) * Math.cos(lat2) * sdLon*sdLon;
+				out[i] = 2 * EARTH_MEAN_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, h)));
+			}
+		});
+	}
+
+	/**
+	 * Compute the distance matrix between two sets of points.
+	 * 
+	 * @param lons1
+	 * @param lats1
+	 * @param n1 The number of points of the first set.
+	 * @param lons2
+	 * @param lats2
+	 * @param n2 The number of points of the second set.
+	 * @param out The output distances, in km, row by row: the distance between point i of the first set and point j of the second set is at index i*n2+j. Its size should be at least n1*n2.
+	 */
+	public static void getDistanceMatrixKM(double[] lons1, double[] lats1, int n1, double[] lons2, double[] lats2, int n2, double[] out) {
+		//precompute values of the second set, used for each row
+		final double[] lonR2 = new double[n2], latR2 = new double[n2], cosLat2 = new double[n2];
+		for(int j=0; j<n2; j++) {
+			lonR2[j] = lons2[j] * ProjectionUtil.degToRadFactor;
+			latR2[j] = lats2[j] * ProjectionUtil.degToRadFactor;
+			cosLat2[j] = Math.cos(latR2[j]);
+		}
+
+		IntStream st = IntStream.range(0, n1);
+		if((long)n1*n2 >= PARALLEL_THRESHOLD) st = st.parallel();
+		st.forEach(i -> {
+			final double lonR = lons1[i] * ProjectionUtil.degToRadFactor, latR = lats1[i] * ProjectionUtil.degToRadFactor, cosLat = Math.cos(latR);
+			final int off = i*n2;
+			for(int j=0; j<n2; j++) {
+				double sdLat = Math.sin(0.5 * (latR2[j] - latR));
+				double sdLon = Math.sin(0.5 * (lonR2[j] - lonR));
+				double h = sdLat*sdLat + cosLat * cosLat2[j] * sdLon*sdLon;
+				out[off+j] = 2 * EARTH_MEAN_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, h)));
+			}
+		});
+	}
+
+	//a computation on the range [from,to[ of an array
+	private interface RangeComputation { void run(int from, int to); }
+
+	//run a computation by chunks, in parallel for large inputs
+	private static void runChunks(int n, RangeComputation rc) {
+		if(n < PARALLEL_THRESHOLD) { rc.run(0, n); return; }
+		int nbChunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		IntStream.range(0, nbChunks).parallel().forEach(c -> rc.run(c*CHUNK_SIZE, Math.min(n, (c+1)*CHUNK_SIZE)));
+	}
+
+
+
 	//in km
 	public static double getLengthGeoKM(Geometry g) {
 		if(g instanceof LineString) return getLengthGeoKM((LineString)g);
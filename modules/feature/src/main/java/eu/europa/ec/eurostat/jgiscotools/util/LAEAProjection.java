@@ -0,0 +1,138 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.util;
+
+/**
+ * Analytic Lambert Azimuthal Equal Area projection on the GRS80 ellipsoid,
+ * with the parameters of ETRS89-LAEA (EPSG:3035): lat_0=52, lon_0=10, x_0=4321000, y_0=3210000.
+ * See EPSG guidance note 7-2, method 9820.
+ *
+ * Geographic coordinates are (lon, lat) in degrees, ETRS89 (or WGS84, considered as equivalent).
+ * Projected coordinates are (x, y), that is (easting, northing), in meters.
+ * Coordinates are given as primitive arrays of interleaved values: lon0,lat0,lon1,lat1,... and x0,y0,x1,y1,...
+ * Input and output arrays can be the same, for in-place transformation.
+ *
+ * @author julien Gaffuri
+ *
+ */
+public class LAEAProjection {
+
+	//GRS80 ellipsoid
+	private static final double A = 6378137.0;
+	private static final double F = 1.0 / 298.257222101;
+	private static final double E2 = 2*F - F*F;
+	private static final double E = Math.sqrt(E2);
+
+	//ETRS89-LAEA parameters
+	private static final double LAT0 = Math.toRadians(52.0);
+	private static final double LON0 = Math.toRadians(10.0);
+	private static final double FE = 4321000.0;
+	private static final double FN = 3210000.0;
+
+	//derived constants
+	private static final double QP = q(1.0);
+	private static final double RQ = A * Math.sqrt(QP / 2);
+	private static final double BETA0 = Math.asin(q(Math.sin(LAT0)) / QP);
+	private static final double SIN_BETA0 = Math.sin(BETA0);
+	private static final double COS_BETA0 = Math.cos(BETA0);
+	private static final double D = A * Math.cos(LAT0) / Math.sqrt(1 - E2*Math.sin(LAT0)*Math.sin(LAT0)) / (RQ * COS_BETA0);
+
+	//coefficients of the authalic to geodetic latitude series
+	private static final double C2 = E2/3 + 31*E2*E2/180 + 517*E2*E2*E2/5040;
+	private static final double C4 = 23*E2*E2/360 + 251*E2*E2*E2/3780;
+	private static final double C6 = 761*E2*E2*E2/45360;
+
+	private static double q(double sinLat) {
+		double es = E*sinLat;
+		return (1-E2) * ( sinLat/(1-es*es) - Math.log((1-es)/(1+es)) / (2*E) );
+	}
+
+
+
+	/**
+	 * Project geographic coordinates into ETRS89-LAEA.
+	 *
+	 * @param lonLat The input (lon,lat) coordinates, interleaved, in degrees.
+	 * @param xy The output (x,y) coordinates, interleaved, in meters. Can be the same array as the input.
+	 * @param n The number of points.
+	 */
+	public static void forward(double[] lonLat, double[] xy, int n) {
+		for(int i=0; i<n; i++) {
+			double lon = Math.toRadians(lonLat[2*i]) - LON0;
+			double sinLat = Math.sin(Math.toRadians(lonLat[2*i+1]));
+			double sinBeta = q(sinLat) / QP;
+			//guard against rounding at the poles
+			if(sinBeta > 1) sinBeta = 1; else if(sinBeta < -1) sinBeta = -1;
+			double cosBeta = Math.sqrt(1 - sinBeta*sinBeta);
+			double cosLon = Math.cos(lon);
+			double b = RQ * Math.sqrt(2 / (1 + SIN_BETA0*sinBeta + COS_BETA0*cosBeta*cosLon));
+			xy[2*i] = FE + b*D*cosBeta*Math.sin(lon);
+			xy[2*i+1] = FN + (b/D) * (COS_BETA0*sinBeta - SIN_BETA0*cosBeta*cosLon);
+		}
+	}
+
+	/**
+	 * Project ETRS89-LAEA coordinates back into geographic coordinates.
+	 *
+	 * @param xy The input (x,y) coordinates, interleaved, in meters.
+	 * @param lonLat The output (lon,lat) coordinates, interleaved, in degrees. Can be the same array as the input.
+	 * @param n The number of points.
+	 */
+	public static void inverse(double[] xy, double[] lonLat, int n) {
+		for(int i=0; i<n; i++) {
+			double dx = (xy[2*i] - FE) / D;
+			double dy = (xy[2*i+1] - FN) * D;
+			double rho = Math.sqrt(dx*dx + dy*dy);
+			if(rho == 0) {
+				lonLat[2*i] = Math.toDegrees(LON0);
+				lonLat[2*i+1] = Math.toDegrees(LAT0);
+				continue;
+			}
+			double c = 2 * Math.asin(rho / (2*RQ));
+			double sinC = Math.sin(c), cosC = Math.cos(c);
+			double beta = Math.asin(cosC*SIN_BETA0 + dy*sinC*COS_BETA0/rho);
+			double lon = LON0 + Math.atan2(dx*D*sinC, D*rho*COS_BETA0*cosC - D*dy*SIN_BETA0*sinC);
+			double lat = beta + C2*Math.sin(2*beta) + C4*Math.sin(4*beta) + C6*Math.sin(6*beta);
+			lonLat[2*i] = Math.toDegrees(lon);
+			lonLat[2*i+1] = Math.toDegrees(lat);
+		}
+	}
+
+	/**
+	 * Project geographic coordinates into ETRS89-LAEA, for separate coordinate arrays.
+	 *
+	 * @param lon The input longitudes, in degrees.
+	 * @param lat The input latitudes, in degrees.
+	 * @param x The output x coordinates, in meters.
+	 * @param y The output y coordinates, in meters.
+	 * @param n The number of points.
+	 */
+	public static void forward(double[] lon, double[] lat, double[] x, double[] y, int n) {
+		double[] buf = new double[2];
+		for(int i=0; i<n; i++) {
+			buf[0] = lon[i]; buf[1] = lat[i];
+			forward(buf, buf, 1);
+			x[i] = buf[0]; y[i] = buf[1];
+		}
+	}
+
+	/**
+	 * Project ETRS89-LAEA coordinates back into geographic coordinates, for separate coordinate arrays.
+	 *
+	 * @param x The input x coordinates, in meters.
+	 * @param y The input y coordinates, in meters.
+	 * @param lon The output longitudes, in degrees.
+	 * @param lat The output latitudes, in degrees.
+	 * @param n The number of points.
+	 */
+	public static void inverse(double[] x, double[] y, double[] lon, double[] lat, int n) {
+		double[] buf = new double[2];
+		for(int i=0; i<n; i++) {
+			buf[0] = x[i]; buf[1] = y[i];
+			inverse(buf, buf, 1);
+			lon[i] = buf[0]; lat[i] = buf[1];
+		}
+	}
+
+}
@@ -3,6 +3,7 @@
  */
 package eu.europa.ec.eurostat.jgiscotools.util;
 
+import java.awt.HeadlessException;
 import java.awt.Toolkit;
 
 import org.apache.logging.log4j.LogManager;
@@ -60,6 +61,67 @@ public class ProjectionUtil {
 	}
 
 
+	// batch conversions between (XGeo, YGeo) and (lon, lat), into caller provided arrays
+
+	/**
+	 * @param lon The longitudes.
+	 * @param lat The latitudes.
+	 * @param xGeo The output X geo coordinates.
+	 * @param yGeo The output Y geo coordinates.
+	 * @param n The number of points.
+	 */
+	public static void getXYGeo(double[] lon, double[] lat, double[] xGeo, double[] yGeo, int n) {
+		final double hr = EARTH_RADIUS_M * 0.5;
+		for(int i=0; i<n; i++) {
+			xGeo[i] = lon[i] * ED;
+			double s = Math.sin(lat[i] * degToRadFactor);
+			yGeo[i] = hr * Math.log((1+s)/(1-s));
+		}
+	}
+
+	/**
+	 * @param xGeo The X geo coordinates.
+	 * @param yGeo The Y geo coordinates.
+	 * @param lon The output longitudes.
+	 * @param lat The output latitudes.
+	 * @param n The number of points.
+	 */
+	public static void getLonLat(double[] xGeo, double[] yGeo, double[] lon, double[] lat, int n) {
+		for(int i=0; i<n; i++) {
+			lon[i] = xGeo[i] / ED;
+			lat[i] = 90*( 4* Math.atan(Math.exp(yGeo[i]/EARTH_RADIUS_M)) / Math.PI - 1 );
+		}
+	}
+
+	/**
+	 * @param lonLat The interleaved (lon,lat) coordinates.
+	 * @param xyGeo The output interleaved (XGeo,YGeo) coordinates. Can be the same array as the input.
+	 * @param n The number of points.
+	 */
+	public static void getXYGeo(double[] lonLat, double[] xyGeo, int n) {
+		final double hr = EARTH_RADIUS_M * 0.5;
+		for(int i=0; i<n; i++) {
+			double s = Math.sin(lonLat[2*i+1] * degToRadFactor);
+			xyGeo[2*i] = lonLat[2*i] * ED;
+			xyGeo[2*i+1] = hr * Math.log((1+s)/(1-s));
+		}
+	}
+
+	/**
+	 * @param xyGeo The interleaved (XGeo,YGeo) coordinates.
+	 * @param lonLat The output interleaved (lon,lat) coordinates. Can be the same array as the input.
+	 * @param n The number of points.
+	 */
+	public static void getLonLat(double[] xyGeo, double[] lonLat, int n) {
+		for(int i=0; i<n; i++) {
+			double y = xyGeo[2*i+1];
+			lonLat[2*i] = xyGeo[2*i] / ED;
+			lonLat[2*i+1] = 90*( 4* Math.atan(Math.exp(y/EARTH_RADIUS_M)) / Math.PI - 1 );
+		}
+	}
+
+
+
 	// conversions between (XPix, YPix) and (lon, lat)
 
 	/**
@@ -191,7 +253,16 @@ public class ProjectionUtil {
 	/**
 	 * The screen pixel size (in m)
 	 */
-	public final static double METERS_PER_PIXEL = 0.02540005/Toolkit.getDefaultToolkit().getScreenResolution();
+	public final static double METERS_PER_PIXEL = 0.02540005/getScreenResolution();
+
+	//the screen resolution, in dots per inch. Without screen, the usual 96 dpi is used.
+	private static int getScreenResolution() {
+		try {
+			return Toolkit.getDefaultToolkit().getScreenResolution();
+		} catch (HeadlessException e) {
+			return 96;
+		}
+	}
 
 	/**
 	 * @param lat The latitude.
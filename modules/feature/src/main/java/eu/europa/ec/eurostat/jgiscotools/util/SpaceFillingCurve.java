@@ -0,0 +1,124 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.util;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Space filling curves, to order 2D positions so that positions close in space are close in the order.
+ * The positions are given on a 2^16 x 2^16 grid, that is with integer coordinates within [0, 65535].
+ *
+ * @author julien Gaffuri
+ *
+ */
+public enum SpaceFillingCurve {
+	/** The Hilbert curve. Best locality. */
+	HILBERT,
+	/** The Z-order (Morton) curve. Faster to compute. */
+	Z_ORDER;
+
+	/** The number of bits per grid coordinate. */
+	public static final int ORDER = 16;
+
+	/** The grid size: positions should be within [0, GRID_SIZE-1]. */
+	public static final int GRID_SIZE = 1 << ORDER;
+
+	/**
+	 * Compute the index of a grid position along the curve.
+	 *
+	 * @param x The grid position x, within [0, GRID_SIZE-1].
+	 * @param y The grid position y, within [0, GRID_SIZE-1].
+	 * @return The index, within [0, 2^32-1].
+	 */
+	public long getIndex(int x, int y) {
+		return this == HILBERT? getHilbertIndex(x, y) : getZOrderIndex(x, y);
+	}
+
+	/**
+	 * Get the order of some 2D positions along the curve.
+	 * The positions are scaled to the grid from their extent. The order is stable.
+	 * The undefined positions (NaN) are put at the end.
+	 *
+	 * @param xs The positions x.
+	 * @param ys The positions y.
+	 * @param n The number of positions.
+	 * @param parallel Set to true to compute the curve indices and to sort in parallel.
+	 * @return The position indices, in the curve order.
+	 */
+	public int[] getOrder(double[] xs, double[] ys, int n, boolean parallel) {
+		//get extent
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for(int i=0; i<n; i++) {
+			if(Double.isNaN(xs[i])) continue;
+			if(xs[i]<minX) minX=xs[i]; if(xs[i]>maxX) maxX=xs[i];
+			if(ys[i]<minY) minY=ys[i]; if(ys[i]>maxY) maxY=ys[i];
+		}
+		double kx = maxX>minX? (GRID_SIZE-1) / (maxX-minX) : 0;
+		double ky = maxY>minY? (GRID_SIZE-1) / (maxY-minY) : 0;
+
+		//compute sort keys: curve index (32 bits) followed by position index (31 bits), to keep the sort stable
+		final double minX_ = minX, minY_ = minY;
+		long[] keys = new long[n];
+		IntStream st = IntStream.range(0, n); if(parallel) st = st.parallel();
+		st.forEach(i -> {
+			if(Double.isNaN(xs[i])) { keys[i] = -1; return; }
+			long d = getIndex((int)((xs[i]-minX_)*kx), (int)((ys[i]-minY_)*ky));
+			keys[i] = (d << 31) | i;
+		});
+		st.close();
+		long[] sorted = keys.clone();
+		if(parallel) Arrays.parallelSort(sorted); else Arrays.sort(sorted);
+
+		//undefined positions have negative keys: add them at the end
+		int[] order = new int[n];
+		int p = 0;
+		for(int i=0; i<n; i++) if(sorted[i] >= 0) order[p++] = (int)(sorted[i] & 0x7FFFFFFFL);
+		for(int i=0; i<n; i++) if(keys[i] < 0) order[p++] = i;
+		return order;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return The Hilbert curve index of a grid position.
+	 */
+	public static long getHilbertIndex(int x, int y) {
+		long d = 0;
+		for(int s = GRID_SIZE/2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long)s * s * ((3 * rx) ^ ry);
+			//rotate the quadrant
+			if(ry == 0) {
+				if(rx == 1) {
+					x = GRID_SIZE-1 - x;
+					y = GRID_SIZE-1 - y;
+				}
+				int t = x; x = y; y = t;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return The Z-order (Morton) index of a grid position, that is the interleaving of the bits of x and y.
+	 */
+	public static long getZOrderIndex(int x, int y) {
+		return spread(x) | (spread(y) << 1);
+	}
+
+	//insert a 0 bit between each bit of a 16 bits value
+	private static long spread(int v) {
+		long x = v & 0xFFFFL;
+		x = (x | (x << 8)) & 0x00FF00FFL;
+		x = (x | (x << 4)) & 0x0F0F0F0FL;
+		x = (x | (x << 2)) & 0x33333333L;
+		x = (x | (x << 1)) & 0x55555555L;
+		return x;
+	}
+
+}
@@ -26,12 +26,94 @@ public class TileUtil {
 
 
 
+	//NB: the positions outside the map are assigned to the closest tile.
+
 	public static int getXTile(double lon, int zoom) {
-		return (int)Math.floor( (lon + 180) / 360 * (1<<zoom) );
+		return clamp( Math.floor( (lon + 180) / 360 * (1<<zoom) ), zoom);
 	}
 
 	public static int getYTile(double lat, int zoom) {
-		return (int)Math.floor( (1 - Math.log(Math.tan(Math.toRadians(lat)) + 1 / Math.cos(Math.toRadians(lat))) / Math.PI) / 2 * (1<<zoom) ) ;
+		return clamp( Math.floor( (1 - Math.log(Math.tan(Math.toRadians(lat)) + 1 / Math.cos(Math.toRadians(lat))) / Math.PI) / 2 * (1<<zoom) ), zoom);
+	}
+
+	//ensure a tile coordinate is within 0 and (2^zoom)-1
+	private static int clamp(double t, int zoom) {
+		if(!(t > 0)) return 0;
+		int max = (1<<zoom) - 1;
+		return t > max? max : (int)t;
+	}
+
+
+
+	//batch conversions, into caller provided arrays, from web mercator (EPSG:3857) coordinates
+
+	/** Half the extent of the web mercator projection, in meters. */
+	public static final double HALF_EXTENT_M = Math.PI * ProjectionUtil.EARTH_RADIUS_M;
+
+	/**
+	 * @param zoom
+	 * @return The tile size, in web mercator meters.
+	 */
+	public static double getTileSizeM(int zoom) {
+		return 2 * HALF_EXTENT_M / (1<<zoom);
+	}
+
+	/**
+	 * Compute the tile coordinates of points given in web mercator coordinates.
+	 * 
+	 * @param xGeo The X geo coordinates.
+	 * @param yGeo The Y geo coordinates.
+	 * @param zoom The zoom level.
+	 * @param xTile The output tile X coordinates.
+	 * @param yTile The output tile Y coordinates.
+	 * @param n The number of points.
+	 */
+	public static void getTileXY(double[] xGeo, double[] yGeo, int zoom, int[] xTile, int[] yTile, int n) {
+		final double f = (1<<zoom) / (2 * HALF_EXTENT_M);
+		for(int i=0; i<n; i++) {
+			xTile[i] = clamp( Math.floor( (xGeo[i] + HALF_EXTENT_M) * f ), zoom);
+			yTile[i] = clamp( Math.floor( (HALF_EXTENT_M - yGeo[i]) * f ), zoom);
+		}
+	}
+
+	/**
+	 * Compute the tile coordinates of points given in geographic coordinates.
+	 * 
+	 * @param lon The longitudes.
+	 * @param lat The latitudes.
+	 * @param zoom The zoom level.
+	 * @param xTile The output tile X coordinates.
+	 * @param yTile The output tile Y coordinates.
+	 * @param n The number of points.
+	 */
+	public static void getTileXYFromLonLat(double[] lon, double[] lat, int zoom, int[] xTile, int[] yTile, int n) {
+		final int s = 1<<zoom;
+		for(int i=0; i<n; i++) {
+			double latR = Math.toRadians(lat[i]);
+			xTile[i] = clamp( Math.floor( (lon[i] + 180) / 360 * s ), zoom);
+			yTile[i] = clamp( Math.floor( (1 - Math.log(Math.tan(latR) + 1 / Math.cos(latR)) / Math.PI) / 2 * s ), zoom);
+		}
+	}
+
+	/**
+	 * Compute the bounds of tiles, in web mercator coordinates.
+	 * 
+	 * @param xTile The tile X coordinates.
+	 * @param yTile The tile Y coordinates.
+	 * @param zoom The zoom level.
+	 * @param bounds The output bounds, as (xMin,yMin,xMax,yMax) for each tile. Its size should be at least 4*n.
+	 * @param n The number of tiles.
+	 */
+	public static void getTileBounds(int[] xTile, int[] yTile, int zoom, double[] bounds, int n) {
+		final double size = getTileSizeM(zoom);
+		for(int i=0; i<n; i++) {
+			double xMin = xTile[i] * size - HALF_EXTENT_M;
+			double yMax = HALF_EXTENT_M - yTile[i] * size;
+			bounds[4*i] = xMin;
+			bounds[4*i+1] = yMax - size;
+			bounds[4*i+2] = xMin + size;
+			bounds[4*i+3] = yMax;
+		}
 	}
 
 
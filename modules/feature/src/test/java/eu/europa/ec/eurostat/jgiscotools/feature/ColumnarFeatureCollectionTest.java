@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class ColumnarFeatureCollectionTest extends TestCase {
+
+	//a feature with attributes of all column types. Some values are null, depending on i.
+	private static Feature getFeature(int i) {
+		Feature f = new Feature();
+		f.setID("f" + i);
+		f.setAttribute("d", i%3==0? null : i*0.5);
+		f.setAttribute("i", i%4==0? null : i);
+		f.setAttribute("l", i%5==0? null : 10000000000L + i);
+		f.setAttribute("s", i%2==0? null : "s" + (i%3));
+		f.setAttribute("o", i%6==0? null : new Date(i));
+		return f;
+	}
+
+	//check a feature has the attribute values of getFeature(i)
+	private static void check(Feature f, int i) {
+		Feature f_ = getFeature(i);
+		assertEquals(f_.getID(), f.getID());
+		for(String att : new String[] {"d", "i", "l", "s", "o"})
+			assertEquals(att + " " + i, f_.getAttribute(att), f.getAttribute(att));
+		assertEquals(f_.getAttributes(), new HashMap<>(f.getAttributes()));
+	}
+
+	private static List<Feature> getFeatures(int n) {
+		List<Feature> fs = new ArrayList<>();
+		for(int i=0; i<n; i++) fs.add(getFeature(i));
+		return fs;
+	}
+
+	/***/
+	public void testTypes() {
+		ColumnarFeatureCollection fc = new ColumnarFeatureCollection(getFeatures(20));
+		assertEquals(20, fc.size());
+		assertEquals(Double.class, fc.getAttributeType("d"));
+		assertEquals(Integer.class, fc.getAttributeType("i"));
+		assertEquals(Long.class, fc.getAttributeType("l"));
+		assertEquals(String.class, fc.getAttributeType("s"));
+		assertEquals(Date.class, fc.getAttributeType("o"));
+		for(int i=0; i<20; i++) check(fc.get(i), i);
+
+		//mixed types: generic column
+		fc.get(3).setAttribute("i", "three");
+		assertEquals(Object.class, fc.getAttributeType("i"));
+		assertEquals("three", fc.get(3).getAttribute("i"));
+		assertEquals(5, fc.get(5).getAttribute("i"));
+	}
+
+	/***/
+	public void testAddRemove() {
+		ColumnarFeatureCollection fc = new ColumnarFeatureCollection(2);
+		//insertions at the start, at the end and in the middle, with growth
+		for(int i=1; i<40; i+=2) fc.add(getFeature(i));
+		fc.add(0, getFeature(0));
+		for(int i=2; i<40; i+=2) fc.add(i, getFeature(i));
+		assertEquals(40, fc.size());
+		for(int i=0; i<40; i++) check(fc.get(i), i);
+
+		//removals
+		Feature f = fc.remove(0);
+		check(f, 0);
+		f = fc.remove(10);
+		check(f, 11);
+		f = fc.remove(fc.size()-1);
+		check(f, 39);
+		assertEquals(37, fc.size());
+		for(int i=0; i<10; i++) check(fc.get(i), i+1);
+		for(int i=10; i<37; i++) check(fc.get(i), i+2);
+
+		//removed features keep their values
+		f.setAttribute("d", 1.0);
+		assertEquals(1.0, f.getAttribute("d"));
+		check(fc.get(36), 38);
+	}
+
+	/***/
+	public void testSetAndSort() {
+		List<Feature> fs = getFeatures(30);
+		ColumnarFeatureCollection fc = new ColumnarFeatureCollection(fs);
+
+		//set with a feature from outside
+		Feature old = fc.set(4, getFeature(100));
+		check(old, 4);
+		check(fc.get(4), 100);
+		fc.set(4, old);
+		check(fc.get(4), 4);
+
+		//sort by decreasing id number
+		Collections.sort(fc, (f1, f2) -> Integer.compare(Integer.parseInt(f2.getID().substring(1)), Integer.parseInt(f1.getID().substring(1))));
+		for(int i=0; i<30; i++) check(fc.get(i), 29-i);
+
+		//the features remain attached to the collection
+		fc.get(0).setAttribute("s", "new");
+		assertEquals("new", fc.get(0).getAttribute("s"));
+
+		//sort back
+		Collections.sort(fc, (f1, f2) -> f1.getID().length()!=f2.getID().length()? f1.getID().length()-f2.getID().length() : f1.getID().compareTo(f2.getID()));
+		for(int i=0; i<29; i++) check(fc.get(i), i);
+		assertEquals("new", fc.get(29).getAttribute("s"));
+	}
+
+	/***/
+	public void testRemoveAttribute() {
+		ColumnarFeatureCollection fc = new ColumnarFeatureCollection(getFeatures(10));
+		Feature f = fc.get(3);
+		assertEquals(3, f.getAttribute("i"));
+		assertEquals(3, f.getAttributes().remove("i"));
+		assertFalse(f.getAttributes().containsKey("i"));
+		assertFalse(f.getAttributes().keySet().contains("i"));
+		assertEquals(4, f.getAttributes().size());
+		assertNull(f.getAttribute("i"));
+		assertNull(f.getAttributes().remove("i"));
+
+		//other features keep the attribute
+		assertTrue(fc.get(4).getAttributes().containsKey("i"));
+		//the removal is kept when the row is moved
+		fc.add(0, getFeature(50));
+		assertFalse(fc.get(4).getAttributes().containsKey("i"));
+		Collections.reverse(fc);
+		assertFalse(fc.get(6).getAttributes().containsKey("i"));
+		assertEquals("f3", fc.get(6).getID());
+
+		//set it back
+		fc.get(6).setAttribute("i", 3);
+		assertTrue(fc.get(6).getAttributes().containsKey("i"));
+		assertEquals(5, fc.get(6).getAttributes().size());
+	}
+
+}
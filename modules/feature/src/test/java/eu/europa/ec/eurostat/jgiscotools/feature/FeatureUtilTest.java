@@ -0,0 +1,113 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class FeatureUtilTest extends TestCase {
+	private static final GeometryFactory gf = new GeometryFactory();
+
+	//a n x n grid of unit squares, as multipolygon features. The group attribute is set to 'a' or 'b'.
+	private static List<Feature> getSquares(int n) {
+		List<Feature> fs = new ArrayList<Feature>();
+		for(int i=0; i<n; i++)
+			for(int j=0; j<n; j++) {
+				Feature f = new Feature();
+				f.setID(i<n/2? "a" : "b");
+				f.setAttribute("group", i<n/2? "a" : "b");
+				f.setGeometry(gf.createMultiPolygon(new Polygon[] { JTSGeomUtil.createPolygon(i,j, i+1,j, i+1,j+1, i,j+1, i,j) }));
+				fs.add(f);
+			}
+		return fs;
+	}
+
+	private static Map<String, Feature> index(Collection<Feature> fs, String att) {
+		Map<String, Feature> ind = new HashMap<String, Feature>();
+		for(Feature f : fs) ind.put(att==null? f.getID() : (String)f.getAttribute(att), f);
+		return ind;
+	}
+
+	/***/
+	public void testDissolve() {
+		//groups of more than 2000 features
+		int n = 70;
+		Map<String, Feature> seq = index(FeatureUtil.dissolve(getSquares(n), "group"), "group");
+		Map<String, Feature> par = index(FeatureUtil.dissolve(getSquares(n), "group", true), "group");
+		assertEquals(2, seq.size());
+		assertEquals(2, par.size());
+		for(String g : seq.keySet()) {
+			assertTrue(seq.get(g).getGeometry().equalsExact(par.get(g).getGeometry()));
+			assertEquals(n*n/2.0, seq.get(g).getGeometry().getArea(), 1e-9);
+		}
+	}
+
+	/***/
+	public void testDissolveById() {
+		int n = 70;
+		List<Feature> seq = getSquares(n), par = getSquares(n);
+		FeatureUtil.dissolveById(seq);
+		FeatureUtil.dissolveById(par, true);
+		assertEquals(2, seq.size());
+		assertEquals(2, par.size());
+		Map<String, Feature> seq_ = index(seq, null), par_ = index(par, null);
+		for(String id : seq_.keySet())
+			assertTrue(seq_.get(id).getGeometry().equalsExact(par_.get(id).getGeometry()));
+	}
+
+	/***/
+	public void testClipEnvelope() {
+		Envelope env = new Envelope(2.5, 7.5, 2.5, 7.5);
+		List<Feature> fs = getSquares(10);
+		Geometry inside = fs.get(4*10+4).getGeometry();
+		ArrayList<Feature> seq = FeatureUtil.clip(fs, env);
+		ArrayList<Feature> par = FeatureUtil.clip(getSquares(10), env, true);
+		//squares 2 to 7 in both directions
+		assertEquals(36, seq.size());
+		assertEquals(36, par.size());
+		double a = 0;
+		for(int i=0; i<seq.size(); i++) {
+			assertEquals(seq.get(i).getGeometry().getEnvelopeInternal(), par.get(i).getGeometry().getEnvelopeInternal());
+			assertEquals(seq.get(i).getGeometry().getArea(), par.get(i).getGeometry().getArea(), 1e-9);
+			assertTrue(env.contains(par.get(i).getGeometry().getEnvelopeInternal()));
+			a += par.get(i).getGeometry().getArea();
+		}
+		assertEquals(25.0, a, 1e-9);
+		//the features inside are not changed
+		assertSame(inside, fs.get(4*10+4).getGeometry());
+	}
+
+	/***/
+	public void testClipMask() {
+		Geometry mask = JTSGeomUtil.createPolygon(0,0, 10,0, 0,10, 0,0);
+		List<Feature> fs = getSquares(10);
+		//a feature without geometry is ignored
+		fs.add(new Feature());
+		ArrayList<Feature> seq = FeatureUtil.clip(getSquares(10), mask, false);
+		ArrayList<Feature> par = FeatureUtil.clip(fs, mask, true);
+		assertEquals(seq.size(), par.size());
+		double a = 0;
+		for(int i=0; i<par.size(); i++) {
+			assertTrue(seq.get(i).getGeometry().equalsExact(par.get(i).getGeometry()));
+			a += par.get(i).getGeometry().getArea();
+		}
+		//the area of the triangle
+		assertEquals(50.0, a, 1e-9);
+	}
+
+}
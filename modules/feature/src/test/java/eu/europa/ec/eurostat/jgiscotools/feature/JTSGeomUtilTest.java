@@ -0,0 +1,70 @@
+/**
+ * 
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.index.quadtree.Quadtree;
+
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class JTSGeomUtilTest extends TestCase {
+
+	/***/
+	public void testDefaultGeometryFactory() {
+		LineString ls = JTSGeomUtil.getGeometryFactory().createLineString(new Coordinate[] { new Coordinate(0,0,5), new Coordinate(1,1,6) });
+		//z is kept
+		assertEquals(5.0, ls.getCoordinateN(0).getZ());
+		//coordinates can be changed in place
+		ls.getCoordinates()[1].x = 2;
+		ls.geometryChanged();
+		assertEquals(2.0, ls.getCoordinateN(1).x);
+		assertEquals(2.0, ls.getEnvelopeInternal().getMaxX());
+	}
+
+	/***/
+	public void testCompactGeometryFactory() {
+		GeometryFactory gf = JTSGeomUtil.getCompactGeometryFactory();
+		assertNotSame(gf, JTSGeomUtil.getGeometryFactory());
+		LineString ls = JTSGeomUtil.createLineString(0,0, 1,1, 2,0);
+		LineString lsc = (LineString) JTSGeomUtil.toGeometryFactory(ls, gf);
+		assertSame(gf, lsc.getFactory());
+		assertTrue(ls.equalsExact(lsc));
+		//already in the factory: no copy
+		assertSame(lsc, JTSGeomUtil.toGeometryFactory(lsc, gf));
+	}
+
+	/***/
+	public void testGeometriesCloseTo() {
+		List<LineString> lss = new ArrayList<LineString>();
+		//a diagonal line, whose envelope contains the position, but which is far from it
+		lss.add(JTSGeomUtil.createLineString(0,10, 10,0));
+		lss.add(JTSGeomUtil.createLineString(1,1, 2,1));
+		lss.add(JTSGeomUtil.createLineString(20,20, 30,30));
+		Quadtree index = JTSGeomUtil.getQuadtree(lss);
+		Coordinate c = new Coordinate(1,2);
+
+		//with and without index, the geometries whose envelope is close to the position
+		Collection<Geometry> close = JTSGeomUtil.getGeometriesCloseTo(c, lss, 1.5);
+		assertEquals(2, close.size());
+		assertEquals(close, JTSGeomUtil.getGeometriesCloseTo(c, index, 1.5));
+
+		//the geometries which are really close to it
+		Collection<Geometry> within = JTSGeomUtil.getGeometriesWithinDistance(c, index, 1.5);
+		assertEquals(1, within.size());
+		assertTrue(within.contains(lss.get(1)));
+		assertEquals(2, JTSGeomUtil.getGeometriesWithinDistance(c, index, 5).size());
+	}
+
+}
@@ -0,0 +1,131 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class PackedRTreeTest extends TestCase {
+	private static final GeometryFactory gf = new GeometryFactory();
+
+	private static List<Feature> getFeatures(int n, Random r) {
+		List<Feature> fs = new ArrayList<Feature>();
+		for(int i=0; i<n; i++) {
+			Feature f = new Feature();
+			f.setID("f" + i);
+			double x = r.nextDouble()*1000, y = r.nextDouble()*1000;
+			f.setGeometry(gf.toGeometry(new Envelope(x, x+r.nextDouble()*5, y, y+r.nextDouble()*5)));
+			fs.add(f);
+		}
+		return fs;
+	}
+
+	//check the results of some queries against brute force
+	private static void checkQueries(PackedRTree rt, List<Feature> fs, Random r) {
+		for(int q=0; q<100; q++) {
+			double x = r.nextDouble()*1000, y = r.nextDouble()*1000;
+			Envelope env = new Envelope(x, x+30, y, y+30);
+			Set<Integer> exp = new TreeSet<Integer>(), res = new TreeSet<Integer>();
+			for(int i=0; i<fs.size(); i++)
+				if(fs.get(i).getGeometry().getEnvelopeInternal().intersects(env)) exp.add(i);
+			for(int i : rt.query(env)) res.add(i);
+			assertEquals(exp, res);
+		}
+	}
+
+	/***/
+	public void testQuery() {
+		Random r = new Random(1);
+		for(int n : new int[] { 0, 1, 16, 17, 1000 }) {
+			List<Feature> fs = getFeatures(n, r);
+			PackedRTree rt = PackedRTree.build(fs, false);
+			assertEquals(n, rt.size());
+			checkQueries(rt, fs, r);
+			checkQueries(PackedRTree.build(fs, 4, true), fs, r);
+		}
+	}
+
+	/***/
+	public void testSaveLoad() throws IOException {
+		Random r = new Random(2);
+		List<Feature> fs = getFeatures(1000, r);
+		File dir = new File("target/prtree/");
+		dir.mkdirs();
+		File dataset = new File(dir, "ds");
+		dataset.createNewFile();
+		File file = new File(dir, "ds" + PackedRTree.FILE_EXTENSION);
+
+		PackedRTree rt = PackedRTree.build(fs, false);
+		rt.save(file, dataset);
+		PackedRTree rt2 = PackedRTree.load(file, dataset);
+		assertNotNull(rt2);
+		assertEquals(rt.size(), rt2.size());
+		assertEquals(rt.getFingerprint(), rt2.getFingerprint());
+		assertEquals(PackedRTree.getFingerprint(fs), rt2.getFingerprint());
+		checkQueries(rt2, fs, r);
+	}
+
+	/***/
+	public void testReuse() throws IOException {
+		Random r = new Random(3);
+		List<Feature> fs = getFeatures(500, r);
+		File dir = new File("target/prtree/");
+		dir.mkdirs();
+		File dataset = new File(dir, "ds2");
+		dataset.createNewFile();
+		PackedRTree.getIndexFile(dataset.getPath()).delete();
+
+		PackedRTree.get(fs, dataset.getPath(), false);
+		assertTrue(PackedRTree.getIndexFile(dataset.getPath()).exists());
+		checkQueries(PackedRTree.get(fs, dataset.getPath(), false), fs, r);
+
+		//same features, in another order: the index is rebuilt
+		List<Feature> fs2 = new ArrayList<Feature>(fs);
+		Collections.reverse(fs2);
+		assertFalse(PackedRTree.getFingerprint(fs) == PackedRTree.getFingerprint(fs2));
+		checkQueries(PackedRTree.get(fs2, dataset.getPath(), false), fs2, r);
+		checkQueries(PackedRTree.get(fs, dataset.getPath(), false), fs, r);
+
+		//the loaded index file can be replaced
+		PackedRTree rt = PackedRTree.load(PackedRTree.getIndexFile(dataset.getPath()), dataset);
+		assertTrue(PackedRTree.build(fs2, false).save(PackedRTree.getIndexFile(dataset.getPath()), dataset));
+		checkQueries(rt, fs, r);
+		checkQueries(PackedRTree.get(fs2, dataset.getPath(), false), fs2, r);
+	}
+
+	/***/
+	public void testFingerprint() {
+		//the fingerprint depends on the feature envelopes and order, not on the feature identifiers
+		List<Feature> fs = getFeatures(100, new Random(4));
+		List<Feature> fs2 = new ArrayList<Feature>();
+		for(Feature f : fs) {
+			Feature f2 = new Feature();
+			f2.setID("other" + f.getID());
+			f2.setGeometry(f.getGeometry());
+			fs2.add(f2);
+		}
+		assertEquals(PackedRTree.getFingerprint(fs), PackedRTree.getFingerprint(fs2));
+		assertEquals(PackedRTree.getFingerprint(fs), PackedRTree.build(fs2, true).getFingerprint());
+
+		Collections.swap(fs2, 10, 20);
+		assertFalse(PackedRTree.getFingerprint(fs) == PackedRTree.getFingerprint(fs2));
+		assertFalse(PackedRTree.getFingerprint(fs) == PackedRTree.getFingerprint(fs.subList(0, 99)));
+	}
+
+}
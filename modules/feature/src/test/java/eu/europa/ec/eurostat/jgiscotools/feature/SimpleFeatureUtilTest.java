@@ -3,6 +3,18 @@
  */
 package eu.europa.ec.eurostat.jgiscotools.feature;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.feature.simple.SimpleFeatureType;
+
 import junit.framework.TestCase;
 
 /**
@@ -26,4 +38,87 @@ public class SimpleFeatureUtilTest extends TestCase {
 		//TODO
 	}
 
+	/***/
+	public void testViews() throws IOException {
+		ArrayList<Feature> fs = new ArrayList<>();
+		for(int i=0; i<5; i++) {
+			Feature f = new Feature();
+			f.setID("f"+i);
+			f.setGeometry(JTSGeomUtil.createPolygon(i,0, i+1,0, i+1,1, i,1, i,0));
+			f.setAttribute("name", "n"+i);
+			fs.add(f);
+		}
+		SimpleFeatureType ft = SimpleFeatureUtil.getFeatureType(fs, "the_geom", null);
+
+		SimpleFeatureCollection sfc = SimpleFeatureUtil.asSimpleFeatureCollection(fs, ft);
+		assertEquals(5, sfc.size());
+		assertEquals(5.0, sfc.getBounds().getMaxX());
+
+		Collection<Feature> fs_ = SimpleFeatureUtil.asFeatures(sfc, null);
+		assertEquals(5, fs_.size());
+		int i = 0;
+		for(Feature f : fs_) {
+			assertEquals("f"+i, f.getID());
+			assertEquals("n"+i, f.getAttribute("name"));
+			assertTrue(f.getGeometry().equalsExact(fs.get(i).getGeometry()));
+			i++;
+		}
+		assertEquals(5, i);
+
+		//iteration stopped early
+		Iterator<Feature> it = fs_.iterator();
+		assertEquals("f0", it.next().getID());
+		assertTrue(it instanceof Closeable);
+		((Closeable)it).close();
+		assertFalse(it.hasNext());
+
+		//forEach
+		ArrayList<String> ids = new ArrayList<>();
+		fs_.forEach(f -> ids.add(f.getID()));
+		assertEquals(5, ids.size());
+	}
+
+	/***/
+	public void testSampledSchema() {
+		ArrayList<Feature> fs = new ArrayList<>();
+		for(int i=0; i<1000; i++) {
+			Feature f = new Feature();
+			f.setGeometry(JTSGeomUtil.createPolygon(i,0, i+1,0, i+1,1, i,1, i,0));
+			f.setAttribute("name", "n"+i);
+			f.setAttribute("late", null);
+			fs.add(f);
+		}
+		//attribute and geometry type only in the last feature, which is out of the sample
+		fs.get(999).setAttribute("late", 12.5);
+		fs.get(999).setAttribute("last", 3);
+		fs.get(999).setGeometry(JTSGeomUtil.toMulti(fs.get(999).getGeometry()));
+
+		//with a sample, only the sample is inspected
+		HashMap<String, Class<?>> types = SimpleFeatureUtil.getAttributeGeomTypes(fs, "the_geom", 10);
+		assertEquals(3, types.size());
+		assertEquals(String.class, types.get("name"));
+		assertEquals(String.class, types.get("late"));
+		assertEquals(Polygon.class, types.get("the_geom"));
+
+		//without sample, all features are inspected
+		types = SimpleFeatureUtil.getAttributeGeomTypes(fs, "the_geom", -1);
+		assertEquals(4, types.size());
+		assertEquals(Double.class, types.get("late"));
+		assertEquals(Integer.class, types.get("last"));
+		//inconsistent geometry types
+		assertEquals(Point.class, types.get("the_geom"));
+
+		//a sample larger than the collection: all features are inspected
+		assertEquals(types, SimpleFeatureUtil.getAttributeGeomTypes(fs, "the_geom", 1000));
+	}
+
+	/***/
+	public void testDeclaredSchemaWithoutGeometryType() {
+		HashMap<String, Class<?>> types = new HashMap<>();
+		types.put("name", String.class);
+		SimpleFeatureType ft = SimpleFeatureUtil.getFeatureType(types, "the_geom", null);
+		assertEquals(2, ft.getAttributeCount());
+		assertEquals(String.class, ft.getDescriptor("the_geom").getType().getBinding());
+	}
+
 }
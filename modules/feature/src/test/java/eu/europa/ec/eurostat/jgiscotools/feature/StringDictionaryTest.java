@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.feature;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class StringDictionaryTest extends TestCase {
+
+	/***/
+	public void testEncode() {
+		StringDictionary sd = new StringDictionary(10);
+		String a1 = new String("FR"), a2 = new String("FR");
+		assertNotSame(a1, a2);
+		assertSame(a1, sd.encode("cc", a1));
+		assertSame(a1, sd.encode("cc", a2));
+		assertNull(sd.encode("cc", null));
+		//columns have their own dictionary
+		String a3 = new String("FR");
+		assertSame(a3, sd.encode("other", a3));
+	}
+
+	/***/
+	public void testCardinalityLimit() {
+		StringDictionary sd = new StringDictionary(3);
+		for(int i=0; i<5; i++) sd.encode("id", "v" + i);
+		//the column is not encoded anymore
+		String v = new String("v0");
+		assertSame(v, sd.encode("id", v));
+		//other columns are still encoded
+		String b1 = new String("B"), b2 = new String("B");
+		sd.encode("cat", b1);
+		assertSame(b1, sd.encode("cat", b2));
+	}
+
+	/***/
+	public void testEncodeRow() {
+		StringDictionary sd = new StringDictionary();
+		String a1 = new String("DE");
+		sd.encode("cc", a1);
+		Map<String, String> row = new HashMap<>();
+		row.put("cc", new String("DE"));
+		row.put("name", null);
+		sd.encode(row);
+		assertSame(a1, row.get("cc"));
+		assertNull(row.get("name"));
+	}
+
+	/***/
+	public void testEncodeFeatures() {
+		ArrayList<Feature> fs = new ArrayList<>();
+		for(int i=0; i<1000; i++) {
+			Feature f = new Feature();
+			f.setAttribute("cat", new String("cat" + (i%3)));
+			f.setAttribute("val", i);
+			f.setAttribute("empty", null);
+			fs.add(f);
+		}
+		StringDictionary.encode(fs, 100, true);
+		for(Feature f : fs) {
+			int i = (Integer) f.getAttribute("val");
+			assertEquals("cat" + (i%3), f.getAttribute("cat"));
+			assertSame(fs.get(i%3).getAttribute("cat"), f.getAttribute("cat"));
+			assertNull(f.getAttribute("empty"));
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class GeoDistanceUtilTest extends TestCase {
+
+	private static double[] getRandom(Random r, int n, double min, double max) {
+		double[] out = new double[n];
+		for(int i=0; i<n; i++) out[i] = min + r.nextDouble()*(max-min);
+		return out;
+	}
+
+	/***/
+	public void testOneToMany() {
+		Random r = new Random(1);
+		//below and above the parallel threshold
+		for(int n : new int[] { 1000, 200000 }) {
+			double[] lons = getRandom(r, n, -180, 180), lats = getRandom(r, n, -90, 90), out = new double[n];
+			GeoDistanceUtil.getDistancesKM(4.35, 50.85, lons, lats, out, n);
+			for(int i=0; i<n; i++)
+				assertEquals(GeoDistanceUtil.getDistanceHaversineKM(4.35, 50.85, lons[i], lats[i]), out[i], 1e-9);
+		}
+	}
+
+	/***/
+	public void testPairwise() {
+		Random r = new Random(2);
+		for(int n : new int[] { 1000, 200000 }) {
+			double[] lons1 = getRandom(r, n, -180, 180), lats1 = getRandom(r, n, -90, 90);
+			double[] lons2 = getRandom(r, n, -180, 180), lats2 = getRandom(r, n, -90, 90), out = new double[n];
+			GeoDistanceUtil.getDistancesKM(lons1, lats1, lons2, lats2, out, n);
+			for(int i=0; i<n; i++)
+				assertEquals(GeoDistanceUtil.getDistanceHaversineKM(lons1[i], lats1[i], lons2[i], lats2[i]), out[i], 1e-9);
+		}
+	}
+
+	/***/
+	public void testMatrix() {
+		Random r = new Random(3);
+		for(int n1 : new int[] { 10, 400 }) {
+			int n2 = 300;
+			double[] lons1 = getRandom(r, n1, -180, 180), lats1 = getRandom(r, n1, -90, 90);
+			double[] lons2 = getRandom(r, n2, -180, 180), lats2 = getRandom(r, n2, -90, 90), out = new double[n1*n2];
+			GeoDistanceUtil.getDistanceMatrixKM(lons1, lats1, n1, lons2, lats2, n2, out);
+			for(int i=0; i<n1; i++)
+				for(int j=0; j<n2; j++)
+					assertEquals(GeoDistanceUtil.getDistanceHaversineKM(lons1[i], lats1[i], lons2[j], lats2[j]), out[i*n2+j], 1e-9);
+		}
+	}
+
+	/***/
+	public void testHaversine() {
+		//the same point, and antipodes
+		assertEquals(0.0, GeoDistanceUtil.getDistanceHaversineKM(4.35, 50.85, 4.35, 50.85), 1e-12);
+		assertEquals(Math.PI * GeoDistanceUtil.EARTH_MEAN_RADIUS_KM, GeoDistanceUtil.getDistanceHaversineKM(0, 0, 180, 0), 1e-9);
+
+		//close to the ellipsoidal distance. Points close to the antipodes are avoided.
+		Random r = new Random(4);
+		for(int i=0; i<100; i++) {
+			double lon1 = -180 + r.nextDouble()*360, lat1 = -80 + r.nextDouble()*160;
+			double lon2 = lon1 + r.nextDouble()*90, lat2 = -80 + r.nextDouble()*160;
+			if(lon2 > 180) lon2 -= 360;
+			double d = GeoDistanceUtil.getDistanceKM(lon1, lat1, lon2, lat2);
+			assertEquals(d, GeoDistanceUtil.getDistanceHaversineKM(lon1, lat1, lon2, lat2), 0.006*d);
+		}
+	}
+
+}
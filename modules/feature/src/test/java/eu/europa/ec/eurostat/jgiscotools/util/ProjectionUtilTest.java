@@ -0,0 +1,60 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class ProjectionUtilTest extends TestCase {
+
+	/***/
+	public void testBatchConversions() {
+		int n = 1000;
+		Random r = new Random(1);
+		double[] lon = new double[n], lat = new double[n], lonLat = new double[2*n];
+		for(int i=0; i<n; i++) {
+			lon[i] = lonLat[2*i] = r.nextDouble()*360 - 180;
+			lat[i] = lonLat[2*i+1] = r.nextDouble()*170 - 85;
+		}
+
+		//lon/lat to x/y: separate and interleaved arrays
+		double[] x = new double[n], y = new double[n], xy = new double[2*n];
+		ProjectionUtil.getXYGeo(lon, lat, x, y, n);
+		ProjectionUtil.getXYGeo(lonLat, xy, n);
+		for(int i=0; i<n; i++) {
+			assertEquals(ProjectionUtil.getXGeo(lon[i]), x[i], 1e-9);
+			assertEquals(ProjectionUtil.getYGeo(lat[i]), y[i], 1e-9);
+			assertEquals(x[i], xy[2*i], 1e-9);
+			assertEquals(y[i], xy[2*i+1], 1e-9);
+		}
+
+		//x/y to lon/lat: separate and interleaved arrays
+		double[] lon_ = new double[n], lat_ = new double[n], lonLat_ = new double[2*n];
+		ProjectionUtil.getLonLat(x, y, lon_, lat_, n);
+		ProjectionUtil.getLonLat(xy, lonLat_, n);
+		for(int i=0; i<n; i++) {
+			assertEquals(ProjectionUtil.getLon(x[i]), lon_[i], 1e-12);
+			assertEquals(ProjectionUtil.getLat(y[i]), lat_[i], 1e-12);
+			assertEquals(lon_[i], lonLat_[2*i], 1e-12);
+			assertEquals(lat_[i], lonLat_[2*i+1], 1e-12);
+			//round trip
+			assertEquals(lon[i], lon_[i], 1e-9);
+			assertEquals(lat[i], lat_[i], 1e-9);
+		}
+
+		//in place
+		ProjectionUtil.getXYGeo(lonLat, lonLat, n);
+		ProjectionUtil.getLonLat(lonLat, lonLat, n);
+		for(int i=0; i<n; i++) {
+			assertEquals(lon[i], lonLat[2*i], 1e-9);
+			assertEquals(lat[i], lonLat[2*i+1], 1e-9);
+		}
+	}
+
+}
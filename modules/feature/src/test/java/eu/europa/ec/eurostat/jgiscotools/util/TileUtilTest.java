@@ -0,0 +1,68 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class TileUtilTest extends TestCase {
+
+	/***/
+	public void testBatchTiles() {
+		int n = 1000;
+		Random r = new Random(2);
+		for(int zoom : new int[] { 0, 3, 10, 18 }) {
+			double[] lon = new double[n], lat = new double[n];
+			for(int i=0; i<n; i++) {
+				lon[i] = r.nextDouble()*360 - 180;
+				lat[i] = r.nextDouble()*170 - 85;
+			}
+			double[] x = new double[n], y = new double[n];
+			ProjectionUtil.getXYGeo(lon, lat, x, y, n);
+
+			int[] xt = new int[n], yt = new int[n], xt_ = new int[n], yt_ = new int[n];
+			TileUtil.getTileXYFromLonLat(lon, lat, zoom, xt, yt, n);
+			TileUtil.getTileXY(x, y, zoom, xt_, yt_, n);
+			double[] bounds = new double[4*n];
+			TileUtil.getTileBounds(xt, yt, zoom, bounds, n);
+			for(int i=0; i<n; i++) {
+				assertEquals(TileUtil.getXTile(lon[i], zoom), xt[i]);
+				assertEquals(TileUtil.getYTile(lat[i], zoom), yt[i]);
+				assertEquals(xt[i], xt_[i]);
+				assertEquals(yt[i], yt_[i]);
+				//the point is in its tile
+				assertTrue(bounds[4*i] <= x[i] && x[i] <= bounds[4*i+2]);
+				assertTrue(bounds[4*i+1] <= y[i] && y[i] <= bounds[4*i+3]);
+			}
+		}
+	}
+
+	/***/
+	public void testClamping() {
+		int zoom = 4, max = (1<<zoom) - 1;
+		double[] lon = new double[] { -200, -180, 180, 200, Double.NaN };
+		double[] lat = new double[] { 89, 90, -89, -90, Double.NaN };
+		int n = lon.length;
+		double[] x = new double[] { -3e7, -TileUtil.HALF_EXTENT_M, TileUtil.HALF_EXTENT_M, 3e7, Double.NaN };
+		double[] y = new double[] { 3e7, TileUtil.HALF_EXTENT_M, -TileUtil.HALF_EXTENT_M, -3e7, Double.NaN };
+		int[] xt = new int[n], yt = new int[n], xt_ = new int[n], yt_ = new int[n];
+		TileUtil.getTileXYFromLonLat(lon, lat, zoom, xt, yt, n);
+		TileUtil.getTileXY(x, y, zoom, xt_, yt_, n);
+		int[] expected = new int[] { 0, 0, max, max, 0 };
+		for(int i=0; i<n; i++) {
+			assertEquals(expected[i], TileUtil.getXTile(lon[i], zoom));
+			assertEquals(expected[i], TileUtil.getYTile(lat[i], zoom));
+			assertEquals(expected[i], xt[i]);
+			assertEquals(expected[i], yt[i]);
+			assertEquals(expected[i], xt_[i]);
+			assertEquals(expected[i], yt_[i]);
+		}
+	}
+
+}
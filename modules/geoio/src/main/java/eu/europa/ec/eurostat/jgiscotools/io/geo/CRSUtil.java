@@ -1,6 +1,10 @@
 package eu.europa.ec.eurostat.jgiscotools.io.geo;
 
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
 
 import javax.measure.Unit;
 
@@ -12,14 +16,20 @@ import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.referencing.crs.DefaultProjectedCRS;
 import org.geotools.referencing.util.CRSUtilities;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
+import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.ReferenceIdentifier;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
 
 import eu.europa.ec.eurostat.jgiscotools.feature.Feature;
 import eu.europa.ec.eurostat.jgiscotools.util.CRSType;
+import eu.europa.ec.eurostat.jgiscotools.util.LAEAProjection;
 
 public class CRSUtil {
 	public final static Logger LOGGER = LogManager.getLogger(CRSUtil.class.getName());
@@ -82,6 +92,47 @@ public class CRSUtil {
 		return null;
 	}
 
+	//cache of math transforms, by source/target CRS pair
+	private static final ConcurrentHashMap<CRSPair, MathTransform> TRANSFORMS = new ConcurrentHashMap<>();
+
+	private static class CRSPair {
+		private final CoordinateReferenceSystem source, target;
+		private final int hash;
+		CRSPair(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+			this.source = source;
+			this.target = target;
+			this.hash = 31 * source.hashCode() + target.hashCode();
+		}
+		@Override
+		public int hashCode() { return hash; }
+		@Override
+		public boolean equals(Object o) {
+			if(this == o) return true;
+			if(!(o instanceof CRSPair)) return false;
+			CRSPair p = (CRSPair) o;
+			return (source == p.source || source.equals(p.source)) && (target == p.target || target.equals(p.target));
+		}
+	}
+
+	/**
+	 * Get the math transform between two CRSs.
+	 * Transforms are computed once per source/target CRS pair and then reused. This method is thread safe.
+	 * 
+	 * @param sourceCRS
+	 * @param targetCRS
+	 * @return
+	 * @throws FactoryException
+	 */
+	public static MathTransform getMathTransform(CoordinateReferenceSystem sourceCRS, CoordinateReferenceSystem targetCRS) throws FactoryException {
+		CRSPair key = new CRSPair(sourceCRS, targetCRS);
+		MathTransform mt = TRANSFORMS.get(key);
+		if(mt != null) return mt;
+		//NB: the transform may be computed twice by concurrent threads, but this is harmless.
+		mt = CRS.findMathTransform(sourceCRS, targetCRS, true);
+		MathTransform mt_ = TRANSFORMS.putIfAbsent(key, mt);
+		return mt_ != null? mt_ : mt;
+	}
+
 	public static Coordinate project(Coordinate c, CoordinateReferenceSystem sourceCRS, CoordinateReferenceSystem targetCRS) {
 		Point pt = new GeometryFactory().createPoint(c);
 		pt = (Point) project(pt, sourceCRS, targetCRS);
@@ -90,7 +141,7 @@ public class CRSUtil {
 
 	public static Geometry project(Geometry geom, CoordinateReferenceSystem sourceCRS, CoordinateReferenceSystem targetCRS) {
 		try {
-			Geometry outGeom = JTS.transform(geom, CRS.findMathTransform(sourceCRS, targetCRS, true));
+			Geometry outGeom = JTS.transform(geom, getMathTransform(sourceCRS, targetCRS));
 			return outGeom;
 		} catch (Exception e) {
 			LOGGER.error("Error while reprojecting.");
@@ -101,6 +152,140 @@ public class CRSUtil {
 
 
 
+	/**
+	 * Reproject the geometries of a collection of features.
+	 * 
+	 * @param fs The features.
+	 * @param sourceCRS
+	 * @param targetCRS
+	 * @param inPlace Set to true to transform the coordinates sequences of the geometries in place, instead of building new geometries.
+	 * @param parallel Set to true to process the features in parallel.
+	 * @param progress A function receiving the progress, in %. Can be null.
+	 */
+	public static void project(Collection<? extends Feature> fs, CoordinateReferenceSystem sourceCRS, CoordinateReferenceSystem targetCRS, boolean inPlace, boolean parallel, IntConsumer progress) {
+		if(fs.size() == 0) return;
+		MathTransform mt;
+		try {
+			mt = getMathTransform(sourceCRS, targetCRS);
+		} catch (FactoryException e) {
+			LOGGER.error("Error while reprojecting: could not find transform.");
+			e.printStackTrace();
+			return;
+		}
+		boolean inPlace_ = inPlace && mt.getSourceDimensions() == 2 && mt.getTargetDimensions() == 2;
+		if(inPlace && !inPlace_) LOGGER.warn("In place reprojection not possible for non 2D transform. New geometries are built.");
+
+		//progress reporting
+		final int nb = fs.size();
+		final AtomicInteger done = new AtomicInteger();
+		final int step = Math.max(1, nb / 100);
+
+		Stream<? extends Feature> st = fs.stream(); if(parallel) st = st.parallel();
+		st.forEach(f -> {
+			Geometry g = f.getGeometry();
+			if(g != null) {
+				if(inPlace_) g.apply(new TransformFilter((cs, n) -> mt.transform(cs, 0, cs, 0, n)));
+				else
+					try {
+						f.setGeometry(JTS.transform(g, mt));
+					} catch (Exception e) {
+						LOGGER.error("Error while reprojecting feature " + f.getID());
+						e.printStackTrace();
+					}
+			}
+			int d = done.incrementAndGet();
+			if(progress != null && (d % step == 0 || d == nb)) progress.accept((int)(100L * d / nb));
+		});
+		st.close();
+	}
+
+	/**
+	 * Reproject the geometries of a collection of features.
+	 * See {@link #project(Collection, CoordinateReferenceSystem, CoordinateReferenceSystem, boolean, boolean, IntConsumer)}.
+	 * 
+	 * @param fs
+	 * @param sourceCRS
+	 * @param targetCRS
+	 * @param inPlace
+	 * @param parallel
+	 */
+	public static void project(Collection<? extends Feature> fs, CoordinateReferenceSystem sourceCRS, CoordinateReferenceSystem targetCRS, boolean inPlace, boolean parallel) {
+		project(fs, sourceCRS, targetCRS, inPlace, parallel, p -> { if(LOGGER.isDebugEnabled()) LOGGER.debug("Reprojection: " + p + "%"); });
+	}
+
+	//a transformation of n interleaved (x,y) coordinates, in place
+	private interface BatchTransform { void transform(double[] cs, int n) throws TransformException; }
+
+	//transform in place all coordinates of the sequences of a geometry
+	private static class TransformFilter implements CoordinateSequenceFilter {
+		private final BatchTransform bt;
+		TransformFilter(BatchTransform bt) { this.bt = bt; }
+
+		@Override
+		public void filter(CoordinateSequence seq, int i) {
+			//the entire sequence is transformed at once, when its first coordinate is visited
+			if(i != 0) return;
+			int n = seq.size();
+			double[] cs = new double[2*n];
+			for(int j=0; j<n; j++) { cs[2*j] = seq.getX(j); cs[2*j+1] = seq.getY(j); }
+			try {
+				bt.transform(cs, n);
+			} catch (TransformException e) {
+				LOGGER.error("Error while reprojecting coordinates around " + seq.getCoordinate(0));
+				e.printStackTrace();
+				return;
+			}
+			for(int j=0; j<n; j++) { seq.setOrdinate(j, 0, cs[2*j]); seq.setOrdinate(j, 1, cs[2*j+1]); }
+		}
+
+		@Override
+		public boolean isDone() { return false; }
+
+		@Override
+		public boolean isGeometryChanged() { return true; }
+	}
+
+	public static void toLAEA(Collection<? extends Feature> fs, CoordinateReferenceSystem sourceCRS, boolean inPlace, boolean parallel) {
+		project(fs, sourceCRS, getETRS89_LAEA_CRS(), inPlace, parallel);
+	}
+
+	/**
+	 * Project in place geographic coordinates (lon,lat) in ETRS89 or WGS84 into ETRS89-LAEA (x=easting,y=northing),
+	 * using the analytic {@link LAEAProjection} kernel instead of the generic GeoTools transform chain.
+	 * NB: the geometries coordinates are expected in (lon,lat) order.
+	 * 
+	 * @param fs
+	 * @param parallel
+	 */
+	public static void geographicToLAEA(Collection<? extends Feature> fs, boolean parallel) {
+		Stream<? extends Feature> st = fs.stream(); if(parallel) st = st.parallel();
+		st.forEach(f -> { if(f.getGeometry() != null) f.getGeometry().apply(new TransformFilter((cs, n) -> LAEAProjection.forward(cs, cs, n))); });
+		st.close();
+	}
+
+	/**
+	 * Project in place ETRS89-LAEA coordinates (x=easting,y=northing) into geographic coordinates (lon,lat),
+	 * using the analytic {@link LAEAProjection} kernel.
+	 * 
+	 * @param fs
+	 * @param parallel
+	 */
+	public static void LAEAToGeographic(Collection<? extends Feature> fs, boolean parallel) {
+		Stream<? extends Feature> st = fs.stream(); if(parallel) st = st.parallel();
+		st.forEach(f -> { if(f.getGeometry() != null) f.getGeometry().apply(new TransformFilter((cs, n) -> LAEAProjection.inverse(cs, cs, n))); });
+		st.close();
+	}
+
+	public static void toWGS84(Collection<? extends Feature> fs, CoordinateReferenceSystem sourceCRS, boolean inPlace, boolean parallel) {
+		project(fs, sourceCRS, getWGS_84_CRS(), inPlace, parallel);
+	}
+
+	public static void toWebMercator(Collection<? extends Feature> fs, CoordinateReferenceSystem sourceCRS, boolean inPlace, boolean parallel) {
+		project(fs, sourceCRS, getWEB_MERCATOR_CRS(), inPlace, parallel);
+	}
+
+
+
 	public static Geometry toWebMercator(Geometry geom, CoordinateReferenceSystem sourceCRS) {
 		return project(geom, sourceCRS, getWEB_MERCATOR_CRS());
 	}
@@ -10,10 +10,28 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -29,16 +47,23 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureStore;
 import org.geotools.geojson.feature.FeatureJSON;
 import org.geotools.geopkg.GeoPkgDataStoreFactory;
+import org.geotools.referencing.CRS;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
+import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import eu.europa.ec.eurostat.jgiscotools.feature.Feature;
+import eu.europa.ec.eurostat.jgiscotools.feature.FeatureUtil;
+import eu.europa.ec.eurostat.jgiscotools.feature.JTSGeomUtil;
 import eu.europa.ec.eurostat.jgiscotools.feature.SimpleFeatureUtil;
+import eu.europa.ec.eurostat.jgiscotools.feature.StringDictionary;
+import eu.europa.ec.eurostat.jgiscotools.util.SpaceFillingCurve;
 
 /**
- * Some generic function to load data from mainstream data formats: gpkg, shp, geojson.
+ * Some generic function to load data from mainstream data formats: gpkg, shp, geojson, geojsonseq (newline-delimited geojson).
  * 
  * @author julien Gaffuri
  *
@@ -47,6 +72,7 @@ public class GeoData {
 	private final static Logger LOGGER = LogManager.getLogger(GeoData.class);
 
 	private File file = null;
+	private String layer;
 	private String idAtt;
 	private Filter filter;
 	private String format;
@@ -73,7 +99,19 @@ public class GeoData {
 	 * @param idAtt 
 	 * @param filter
 	 */
-	public GeoData(String filePath, String idAtt, Filter filter) {
+	public GeoData(String filePath, String idAtt, Filter filter) { this(filePath, null, idAtt, filter); }
+
+	/**
+	 * Build a GeoData from a layer of a file.
+	 * The layer is relevant only for multi-layer formats such as GPKG. If null, the first layer is considered.
+	 * 
+	 * @param filePath
+	 * @param layer 
+	 * @param idAtt 
+	 * @param filter
+	 */
+	public GeoData(String filePath, String layer, String idAtt, Filter filter) {
+		this.layer = layer;
 		this.idAtt = idAtt;
 		this.filter = filter;
 		this.file = new File(filePath);
@@ -93,27 +131,72 @@ public class GeoData {
 	/**
 	 * @return The feature
 	 */
-	public ArrayList<Feature> getFeatures() {
+	public synchronized ArrayList<Feature> getFeatures() {
 		if(features == null) {
 			GeoDataFormatHandler dfh = HANDLERS.get(format);
 			if(dfh != null)
-				this.features = dfh.getFeatures(file, filter, idAtt);
+				this.features = dfh.getFeatures(file, layer, filter, idAtt, dictionaryMaxCardinality > 0? new StringDictionary(dictionaryMaxCardinality) : null, sft -> { if(this.schema == null) this.schema = sft; });
 			else
 				LOGGER.error("Could not retrieve features from data source: " + this.file.getAbsolutePath());
+			if(this.features != null && geometryFactory != null) {
+				GeometryFactory gf = geometryFactory;
+				this.features.parallelStream().forEach(f -> f.setGeometry( JTSGeomUtil.toGeometryFactory(f.getGeometry(), gf) ));
+			}
+			if(this.features != null && spatialSortCurve != null)
+				FeatureUtil.sortSpatially(this.features, spatialSortCurve, true);
 		}
 		return features;
 	}
 
+	private GeometryFactory geometryFactory = null;
+
+	/**
+	 * Set a geometry factory the geometries of this data source are copied into, once read.
+	 * Use JTSGeomUtil.getCompactGeometryFactory() to store them with compact coordinate sequences.
+	 * If null (default), the geometries are kept as created by the readers.
+	 * To be set before the features are retrieved.
+	 * 
+	 * @param gf
+	 * @return This
+	 */
+	public synchronized GeoData setGeometryFactory(GeometryFactory gf) { this.geometryFactory = gf; return this; }
+
+	private SpaceFillingCurve spatialSortCurve = null;
+
+	/**
+	 * Set a space filling curve to sort the features of this data source along, once read.
+	 * This gives spatial locality to the algorithms processing the features in list order.
+	 * If null (default), the features are kept in file order.
+	 * To be set before the features are retrieved.
+	 * 
+	 * @param curve
+	 * @return This
+	 */
+	public synchronized GeoData setSpatialSortCurve(SpaceFillingCurve curve) { this.spatialSortCurve = curve; return this; }
+
+	private int dictionaryMaxCardinality = 0;
+
+	/**
+	 * Enable the dictionary encoding of the string attribute values of this data source, as the features are read:
+	 * All occurrences of a same value in a column share a single String instance.
+	 * Columns with more distinct values than the cardinality limit are not encoded.
+	 * To be set before the features are retrieved.
+	 * 
+	 * @param maxCardinality The cardinality limit. If not positive (default), no encoding is done.
+	 * @return This
+	 */
+	public synchronized GeoData setDictionaryEncoding(int maxCardinality) { this.dictionaryMaxCardinality = maxCardinality; return this; }
+
 	private SimpleFeatureType schema = null;
 
 	/**
 	 * @return The schema
 	 */
-	public SimpleFeatureType getSchema() {
+	public synchronized SimpleFeatureType getSchema() {
 		if(schema == null) {
 			GeoDataFormatHandler dfh = HANDLERS.get(format);
 			if(dfh != null)
-				this.schema = dfh.getSchema(file);
+				this.schema = dfh.getSchema(file, layer);
 			else
 				LOGGER.error("Could not retrieve schema from data source: " + this.file.getAbsolutePath());
 		}
@@ -127,6 +210,17 @@ public class GeoData {
 		return getSchema().getCoordinateReferenceSystem();
 	}
 
+	/**
+	 * @return The names of the layers of the data source. Single-layer formats return a single name.
+	 */
+	public String[] getLayers() {
+		GeoDataFormatHandler dfh = HANDLERS.get(format);
+		if(dfh != null)
+			return dfh.getLayers(file);
+		LOGGER.error("Could not retrieve layers from data source: " + this.file.getAbsolutePath());
+		return null;
+	}
+
 
 
 
@@ -136,63 +230,93 @@ public class GeoData {
 		HANDLERS = new HashMap<String, GeoDataFormatHandler>();
 		HANDLERS.put("gpkg", new GPKGHandler());
 		HANDLERS.put("geojson", new GeoJSONHandler());
+		HANDLERS.put("geojsonl", new GeoJSONSeqHandler());
+		HANDLERS.put("geojsons", new GeoJSONSeqHandler());
 		HANDLERS.put("shp", new SHPHandler());
 	}
 
 	private abstract interface GeoDataFormatHandler {
-		SimpleFeatureType getSchema(File file);
-		ArrayList<Feature> getFeatures(File file, Filter filter, String idAtt);
-		void save(SimpleFeatureCollection sfc, File file, CoordinateReferenceSystem crs, boolean createSpatialIndex);
+		String[] getLayers(File file);
+		SimpleFeatureType getSchema(File file, String layer);
+		//the schema of the features read is given to the schema consumer, when the format provides it without another reading
+		ArrayList<Feature> getFeatures(File file, String layer, Filter filter, String idAtt, StringDictionary sd, Consumer<SimpleFeatureType> schemaOut);
+		void save(Collection<? extends Feature> fs, SimpleFeatureType ft, File file, CoordinateReferenceSystem crs, boolean createSpatialIndex);
 		String getGeomColName();
 	}
 
 	private static class GPKGHandler implements GeoDataFormatHandler {
+
+		//NB: each call opens its own data store, so that several layers of a same file can be read concurrently from different threads.
+		private static DataStore getDataStore(File file) throws IOException {
+			HashMap<String, Object> params = new HashMap<>();
+			params.put(GeoPkgDataStoreFactory.DBTYPE.key, "geopkg");
+			params.put(GeoPkgDataStoreFactory.DATABASE.key, file);
+			return DataStoreFinder.getDataStore(params);
+		}
+
+		//get the layer name to read. If not specified, the first one is used.
+		private static String getLayerName(DataStore store, File file, String layer) throws IOException {
+			String[] names = store.getTypeNames();
+			if(layer != null) {
+				for(String name : names) if(name.equals(layer)) return name;
+				LOGGER.error("Could not find layer " + layer + " in GPKG " + file.getAbsolutePath());
+				return null;
+			}
+			if(names.length >1 )
+				LOGGER.warn("Several types found in GPKG " + file.getAbsolutePath() + ". Only " + names[0] + " will be considered.");
+			return names[0];
+		}
+
 		@Override
-		public ArrayList<Feature> getFeatures(File file, Filter filter, String idAtt) {
+		public String[] getLayers(File file) {
+			DataStore store = null;
 			try {
-				HashMap<String, Object> params = new HashMap<>();
-				params.put(GeoPkgDataStoreFactory.DBTYPE.key, "geopkg");
-				params.put(GeoPkgDataStoreFactory.DATABASE.key, file);
-				DataStore store = DataStoreFinder.getDataStore(params);
-				String[] names = store.getTypeNames();
-				if(names.length >1 )
-					LOGGER.warn("Several types found in GPKG " + file.getAbsolutePath() + ". Only " + names[0] + " will be considered.");
-				String name = names[0];
+				store = getDataStore(file);
+				return store.getTypeNames();
+			} catch (IOException e) { e.printStackTrace(); }
+			finally { if(store != null) store.dispose(); }
+			return null;
+		}
+
+		@Override
+		public ArrayList<Feature> getFeatures(File file, String layer, Filter filter, String idAtt, StringDictionary sd, Consumer<SimpleFeatureType> schemaOut) {
+			DataStore store = null;
+			try {
+				store = getDataStore(file);
+				String name = getLayerName(store, file, layer);
+				if(name == null) return null;
 				LOGGER.debug(name);
 				SimpleFeatureCollection sfc = filter==null? store.getFeatureSource(name).getFeatures() : store.getFeatureSource(name).getFeatures(filter);
-				ArrayList<Feature> fs = SimpleFeatureUtil.get(sfc, idAtt);
+				schemaOut.accept(store.getSchema(name));
+				ArrayList<Feature> fs = SimpleFeatureUtil.get(sfc, idAtt, sd);
 				//remove 'geometry' attribute
 				for(Feature f : fs) {
 					/*Object o = */f.getAttributes().remove("geometry");
 					//if(o == null) LOGGER.warn("Could not remove geometry attribute when loading data from " + this.filePath);
 				}
-				store.dispose();
 				return fs;
 			} catch (Exception e) { e.printStackTrace(); }
+			finally { if(store != null) store.dispose(); }
 			return null;
 		}
 
 		@Override
-		public SimpleFeatureType getSchema(File file) {
+		public SimpleFeatureType getSchema(File file, String layer) {
+			DataStore store = null;
 			try {
-				HashMap<String, Object> params = new HashMap<>();
-				params.put(GeoPkgDataStoreFactory.DBTYPE.key, "geopkg");
-				params.put(GeoPkgDataStoreFactory.DATABASE.key, file);
-				DataStore store = DataStoreFinder.getDataStore(params);
-				String[] names = store.getTypeNames();
-				if(names.length >1 )
-					LOGGER.warn("Several types found in GPKG " + file.getAbsolutePath() + ". Only " + names[0] + " will be considered.");
-				String name = names[0];
+				store = getDataStore(file);
+				String name = getLayerName(store, file, layer);
+				if(name == null) return null;
 				LOGGER.debug(name);
-				SimpleFeatureType schema = store.getSchema(name);
-				store.dispose();
-				return schema;
+				return store.getSchema(name);
 			} catch (IOException e) { e.printStackTrace(); }
+			finally { if(store != null) store.dispose(); }
 			return null;
 		}
 
 		@Override
-		public void save(SimpleFeatureCollection sfc, File file, CoordinateReferenceSystem crs, boolean createSpatialIndex) {
+		public void save(Collection<? extends Feature> fs, SimpleFeatureType ft, File file, CoordinateReferenceSystem crs, boolean createSpatialIndex) {
+			SimpleFeatureCollection sfc = SimpleFeatureUtil.asSimpleFeatureCollection(fs, ft);
 			try {
 				//create feature store
 				HashMap<String, Serializable> params = new HashMap<String, Serializable>();
@@ -227,31 +351,22 @@ public class GeoData {
 
 	private static class GeoJSONHandler implements GeoDataFormatHandler {
 		@Override
-		public ArrayList<Feature> getFeatures(File file, Filter filter, String idAtt) {
-			try {
-				InputStream input = new FileInputStream(file);
-				SimpleFeatureCollection fc = (SimpleFeatureCollection) new FeatureJSON().readFeatureCollection(input);
-				ArrayList<Feature> fs = null;
-				if(filter == null)
-					fs  = SimpleFeatureUtil.get(fc, idAtt);
-				else {
-					fs = new ArrayList<Feature>();
-					for(Feature f : SimpleFeatureUtil.get(fc, idAtt))
-						if(filter.evaluate(f)) fs.add(f);
-				}
-				/*/remove 'geometry' attribute
-				for(Feature f : fs) {
-					Object o = f.getAttributes().remove("geometry");
-					if(o == null) LOGGER.warn("Could not remove geometry attribute when loading GeoJSON data.");
-				}*/
-				input.close();
-				return fs;
-			} catch (Exception e) { e.printStackTrace(); }
-			return null;
+		public String[] getLayers(File file) { return new String[] { getBaseName(file) }; }
+
+		@Override
+		public ArrayList<Feature> getFeatures(File file, String layer, Filter filter, String idAtt, StringDictionary sd, Consumer<SimpleFeatureType> schemaOut) {
+			//streaming parsing, with filter and encoding applied on the fly
+			ArrayList<Feature> fs = new ArrayList<Feature>();
+			GeoJSONStream.read(file, filter, null, idAtt, f -> {
+				if(sd != null) sd.encode(f);
+				fs.add(f);
+			});
+			schemaOut.accept(getSchema(file, layer));
+			return fs;
 		}
 
 		@Override
-		public SimpleFeatureType getSchema(File file) {
+		public SimpleFeatureType getSchema(File file, String layer) {
 			try {
 				InputStream input = new FileInputStream(file);
 				SimpleFeatureType schema = new FeatureJSON().readFeatureCollectionSchema(input, true);
@@ -262,7 +377,8 @@ public class GeoData {
 		}		
 
 		@Override
-		public void save(SimpleFeatureCollection sfc, File file, CoordinateReferenceSystem crs, boolean createSpatialIndex) {
+		public void save(Collection<? extends Feature> fs, SimpleFeatureType ft, File file, CoordinateReferenceSystem crs, boolean createSpatialIndex) {
+			SimpleFeatureCollection sfc = SimpleFeatureUtil.asSimpleFeatureCollection(fs, ft);
 			try {
 				OutputStream output = new FileOutputStream(file);
 				new FeatureJSON().writeFeatureCollection(sfc, output);
@@ -274,20 +390,49 @@ public class GeoData {
 		public String getGeomColName() { return "geometry"; }		
 	};
 
+	private static class GeoJSONSeqHandler implements GeoDataFormatHandler {
+		@Override
+		public String[] getLayers(File file) { return new String[] { getBaseName(file) }; }
+
+		@Override
+		public ArrayList<Feature> getFeatures(File file, String layer, Filter filter, String idAtt, StringDictionary sd, Consumer<SimpleFeatureType> schemaOut) {
+			ArrayList<Feature> fs = GeoJSONStream.getFeaturesSeq(file, filter, null, idAtt, sd, true);
+			schemaOut.accept(getSchema(file, layer));
+			return fs;
+		}
+
+		@Override
+		public SimpleFeatureType getSchema(File file, String layer) {
+			return GeoJSONStream.getSchemaSeq(file);
+		}
+
+		@Override
+		public void save(Collection<? extends Feature> fs, SimpleFeatureType ft, File file, CoordinateReferenceSystem crs, boolean createSpatialIndex) {
+			GeoJSONStream.saveSeq(fs, ft, file, true);
+		}
+
+		@Override
+		public String getGeomColName() { return "geometry"; }		
+	};
+
 	private static class SHPHandler implements GeoDataFormatHandler {
 		@Override
-		public ArrayList<Feature> getFeatures(File file, Filter filter, String idAtt) {
+		public String[] getLayers(File file) { return new String[] { getBaseName(file) }; }
+
+		@Override
+		public ArrayList<Feature> getFeatures(File file, String layer, Filter filter, String idAtt, StringDictionary sd, Consumer<SimpleFeatureType> schemaOut) {
 			try {
 				FileDataStore store = FileDataStoreFinder.getDataStore(file);
 				SimpleFeatureCollection features = filter==null? store.getFeatureSource().getFeatures() : store.getFeatureSource().getFeatures(filter);
+				schemaOut.accept(store.getSchema());
 				store.dispose();
-				return SimpleFeatureUtil.get(features, idAtt);
+				return SimpleFeatureUtil.get(features, idAtt, sd);
 			} catch (Exception e) { e.printStackTrace(); }
 			return null;
 		}
 
 		@Override
-		public SimpleFeatureType getSchema(File file) {
+		public SimpleFeatureType getSchema(File file, String layer) {
 			try {
 				return FileDataStoreFinder.getDataStore(file).getSchema();
 			} catch (Exception e) { e.printStackTrace(); }
@@ -295,7 +440,8 @@ public class GeoData {
 		}		
 
 		@Override
-		public void save(SimpleFeatureCollection sfc, File file, CoordinateReferenceSystem crs, boolean createSpatialIndex) {
+		public void save(Collection<? extends Feature> fs, SimpleFeatureType ft, File file, CoordinateReferenceSystem crs, boolean createSpatialIndex) {
+			SimpleFeatureCollection sfc = SimpleFeatureUtil.asSimpleFeatureCollection(fs, ft);
 			try {
 				//create feature store
 				HashMap<String, Serializable> params = new HashMap<String, Serializable>();
@@ -374,6 +520,188 @@ public class GeoData {
 		return new GeoData(filePath, idAtt, filter).getFeatures();
 	}
 
+	/**
+	 * Get features of a layer of a multi-layer file (GPKG).
+	 * 
+	 * @param filePath
+	 * @param layer
+	 * @param idAtt 
+	 * @param filter 
+	 * @return
+	 */
+	public static ArrayList<Feature> getFeatures(String filePath, String layer, String idAtt, Filter filter)  {
+		return new GeoData(filePath, layer, idAtt, filter).getFeatures();
+	}
+
+	/**
+	 * Get features of several layers of a multi-layer file (GPKG), possibly in parallel.
+	 * 
+	 * @param filePath
+	 * @param layers The layers to read. If null, all layers of the file are read.
+	 * @param idAtt 
+	 * @param filter 
+	 * @param parallel Set to true to read the layers concurrently.
+	 * @return The features, indexed by layer name.
+	 */
+	public static Map<String, ArrayList<Feature>> getFeaturesByLayer(String filePath, Collection<String> layers, String idAtt, Filter filter, boolean parallel)  {
+		Map<String, ArrayList<Feature>> out = new ConcurrentHashMap<>();
+		Collection<String> layers_ = layers;
+		if(layers_ == null) {
+			String[] ls = new GeoData(filePath).getLayers();
+			if(ls == null) return out;
+			layers_ = new ArrayList<String>();
+			for(String l : ls) layers_.add(l);
+		}
+		Stream<String> st = layers_.stream(); if(parallel) st = st.parallel();
+		st.forEach(layer -> {
+			ArrayList<Feature> fs = getFeatures(filePath, layer, idAtt, filter);
+			if(fs != null) out.put(layer, fs);
+		});
+		st.close();
+		return out;
+	}
+
+	/**
+	 * Get features from several files (one per country, per tile, etc.) into a single collection.
+	 * The files are loaded concurrently, with a bounded number of files open at the same time.
+	 * The schemas are merged: All output features have the attributes of all files, possibly with null values.
+	 * The attributes with different types in different files are converted to a common type:
+	 * Long for integer types, Double for other numeric types, String otherwise.
+	 * The features of files with a CRS different from the one of the first file are reprojected into it.
+	 * The output features are ordered as the files.
+	 * 
+	 * @param filePaths The files to load.
+	 * @param idAtt 
+	 * @param filter 
+	 * @param maxConcurrentFiles The maximum number of files loaded at the same time. If not positive, the number of available processors is used.
+	 * @return
+	 */
+	public static ArrayList<Feature> getFeatures(List<String> filePaths, String idAtt, Filter filter, int maxConcurrentFiles)  {
+		ArrayList<Feature> out = new ArrayList<Feature>();
+		if(filePaths.size() == 0) return out;
+
+		//load files in parallel. The schema is retrieved by the loading task, from the reader.
+		int nbThreads = maxConcurrentFiles>0? maxConcurrentFiles : Runtime.getRuntime().availableProcessors();
+		nbThreads = Math.min(nbThreads, filePaths.size());
+		ExecutorService es = Executors.newFixedThreadPool(nbThreads);
+		List<Future<GeoData>> futures = new ArrayList<>();
+		for(String filePath : filePaths)
+			futures.add(es.submit(() -> {
+				GeoData gd = new GeoData(filePath, idAtt, filter);
+				gd.getFeatures();
+				return gd;
+			}));
+		es.shutdown();
+
+		//gather, in files order
+		CoordinateReferenceSystem crs = null;
+		Map<String, Set<Class<?>>> types = new LinkedHashMap<>();
+		for(int i=0; i<futures.size(); i++) {
+			GeoData gd;
+			try {
+				gd = futures.get(i).get();
+			} catch (InterruptedException e) {
+				LOGGER.error("Interrupted while loading data from " + filePaths.get(i));
+				Thread.currentThread().interrupt();
+				es.shutdownNow();
+				break;
+			} catch (ExecutionException e) {
+				LOGGER.error("Could not load data from " + filePaths.get(i));
+				e.printStackTrace();
+				continue;
+			}
+			if(gd.features == null) continue;
+
+			//check CRS consistency. Reproject if necessary.
+			CoordinateReferenceSystem crs_ = gd.schema==null? null : gd.schema.getCoordinateReferenceSystem();
+			if(crs_ == null && gd.features.size() > 0)
+				LOGGER.warn("Unknown CRS for " + filePaths.get(i) + ". It is assumed to be the one of the other files.");
+			if(crs == null) crs = crs_;
+			else if(crs_ != null && !CRS.equalsIgnoreMetadata(crs, crs_)) {
+				LOGGER.info("Reproject features of " + filePaths.get(i) + " into " + crs.getName());
+				try {
+					CRSUtil.getMathTransform(crs_, crs);
+				} catch (FactoryException e) {
+					LOGGER.error("Inconsistent CRS for " + filePaths.get(i) + " and no transform found. Its features are ignored.");
+					e.printStackTrace();
+					continue;
+				}
+				CRSUtil.project(gd.features, crs_, crs, false, true, null);
+			}
+
+			for(Feature f : gd.features)
+				for(Entry<String, Object> e : f.getAttributes().entrySet()) {
+					Set<Class<?>> ts = types.computeIfAbsent(e.getKey(), k -> new LinkedHashSet<>());
+					if(e.getValue() != null) ts.add(e.getValue().getClass());
+				}
+			out.addAll(gd.features);
+		}
+
+		//merge schemas: ensure all features have all attributes, with a common type
+		for(Entry<String, Set<Class<?>>> e : types.entrySet()) {
+			String att = e.getKey();
+			Set<Class<?>> ts = e.getValue();
+			//the common type, if conversion is needed
+			Class<?> type = null;
+			if(ts.size() > 1) {
+				type = Long.class;
+				for(Class<?> t : ts) {
+					if(!Number.class.isAssignableFrom(t)) { type = String.class; break; }
+					if(t != Integer.class && t != Long.class && t != Short.class && t != Byte.class) type = Double.class;
+				}
+				LOGGER.info("Inconsistent types for attribute " + att + ": " + ts + ". Converted to " + type.getSimpleName());
+			}
+			for(Feature f : out) {
+				Object v = f.getAttribute(att);
+				if(v == null) { if(!f.getAttributes().containsKey(att)) f.setAttribute(att, null); }
+				else if(type == Long.class) f.setAttribute(att, ((Number)v).longValue());
+				else if(type == Double.class) f.setAttribute(att, ((Number)v).doubleValue());
+				else if(type == String.class) f.setAttribute(att, v.toString());
+			}
+		}
+
+		return out;
+	}
+
+	/**
+	 * Get the paths of the files of a folder matching a glob pattern, such as "*.gpkg" or "grid_*_1km.shp".
+	 * 
+	 * @param folderPath
+	 * @param glob
+	 * @return The file paths, sorted.
+	 */
+	public static List<String> getFilePaths(String folderPath, String glob) {
+		List<String> out = new ArrayList<>();
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(Paths.get(folderPath), glob)) {
+			for(Path p : ds) out.add(p.toString());
+		} catch (IOException e) { e.printStackTrace(); }
+		Collections.sort(out);
+		return out;
+	}
+
+	/**
+	 * Get features from all files of a folder matching a glob pattern into a single collection.
+	 * See {@link #getFeatures(List, String, Filter, int)}.
+	 * 
+	 * @param folderPath
+	 * @param glob
+	 * @param idAtt
+	 * @param filter
+	 * @param maxConcurrentFiles
+	 * @return
+	 */
+	public static ArrayList<Feature> getFeatures(String folderPath, String glob, String idAtt, Filter filter, int maxConcurrentFiles)  {
+		return getFeatures(getFilePaths(folderPath, glob), idAtt, filter, maxConcurrentFiles);
+	}
+
+	/**
+	 * @param filePath
+	 * @return The names of the layers of the file.
+	 */
+	public static String[] getLayers(String filePath) {
+		return new GeoData(filePath).getLayers();
+	}
+
 	/**
 	 * @param filePath
 	 * @return
@@ -394,12 +722,46 @@ public class GeoData {
 
 
 	/**
+	 * Save features. Their schema is inferred from all of them.
+	 * 
 	 * @param fs
 	 * @param filePath
 	 * @param crs
 	 * @param createSpatialIndex
 	 */
 	public static <T extends Feature> void save(Collection<T> fs, String filePath, CoordinateReferenceSystem crs, boolean createSpatialIndex) {
+		save(fs, filePath, crs, createSpatialIndex, -1);
+	}
+
+	/**
+	 * Save features. Their schema is inferred from a sample of them: the attributes absent from the sample are not saved.
+	 * See {@link SimpleFeatureUtil#getAttributeGeomTypes(Collection, String, int)}.
+	 * 
+	 * @param fs
+	 * @param filePath
+	 * @param crs
+	 * @param createSpatialIndex
+	 * @param schemaSampleSize The number of features inspected for the schema. If not positive, all features are inspected.
+	 */
+	public static <T extends Feature> void save(Collection<T> fs, String filePath, CoordinateReferenceSystem crs, boolean createSpatialIndex, int schemaSampleSize) {
+		save(fs, filePath, crs, null, null, createSpatialIndex, schemaSampleSize);
+	}
+
+	/**
+	 * Save features with a declared schema. No schema inference is needed.
+	 * 
+	 * @param fs
+	 * @param filePath
+	 * @param crs
+	 * @param attributeTypes The attribute types.
+	 * @param geomType The geometry type. If null, it is retrieved from the features.
+	 * @param createSpatialIndex
+	 */
+	public static <T extends Feature> void save(Collection<T> fs, String filePath, CoordinateReferenceSystem crs, Map<String, Class<?>> attributeTypes, Class<? extends Geometry> geomType, boolean createSpatialIndex) {
+		save(fs, filePath, crs, attributeTypes, geomType, createSpatialIndex, -1);
+	}
+
+	private static <T extends Feature> void save(Collection<T> fs, String filePath, CoordinateReferenceSystem crs, Map<String, Class<?>> attributeTypes, Class<? extends Geometry> geomType, boolean createSpatialIndex, int schemaSampleSize) {
 
 		if(fs.size() == 0) {
 			LOGGER.warn("Could not save file " + filePath + " - collection of features is empty");
@@ -414,15 +776,21 @@ public class GeoData {
 			return;
 		}
 
-		//create GT feature collection
-		SimpleFeatureType ft = SimpleFeatureUtil.getFeatureType(fs, dfh.getGeomColName(), crs);
-		SimpleFeatureCollection sfc = SimpleFeatureUtil.get(fs, ft);
+		//get the feature type
+		SimpleFeatureType ft;
+		if(attributeTypes == null)
+			ft = SimpleFeatureUtil.getFeatureType(fs, dfh.getGeomColName(), crs, schemaSampleSize);
+		else {
+			Map<String, Class<?>> types = new HashMap<>(attributeTypes);
+			types.put(dfh.getGeomColName(), geomType != null? geomType : SimpleFeatureUtil.getGeometryType(fs));
+			ft = SimpleFeatureUtil.getFeatureType(types, dfh.getGeomColName(), crs);
+		}
 
 		//create output file
 		File file = getFile(filePath, true, true);
 
 		//save
-		dfh.save(sfc, file, crs, createSpatialIndex);
+		dfh.save(fs, ft, file, crs, createSpatialIndex);
 	}
 
 	/**
@@ -461,6 +829,12 @@ public class GeoData {
 		return file;
 	}
 
+	private static String getBaseName(File file) {
+		String name = file.getName();
+		int i = name.lastIndexOf(".");
+		return i<0? name : name.substring(0, i);
+	}
+
 	private static Optional<String> getExtension(String filename) {
 		return Optional.ofNullable(filename)
 				.filter(f -> f.contains("."))
@@ -0,0 +1,235 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.io.geo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geojson.feature.FeatureJSON;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+import eu.europa.ec.eurostat.jgiscotools.feature.Feature;
+import eu.europa.ec.eurostat.jgiscotools.feature.SimpleFeatureUtil;
+import eu.europa.ec.eurostat.jgiscotools.feature.StringDictionary;
+
+/**
+ * Streaming reading and writing of GeoJSON data.
+ * Features are parsed one by one, so that the whole document never needs to be loaded in memory.
+ * The newline-delimited GeoJSON format (GeoJSONSeq, one feature per line) is also supported,
+ * with parallel reading and writing.
+ *
+ * @author julien Gaffuri
+ *
+ */
+public class GeoJSONStream {
+	private final static Logger LOGGER = LogManager.getLogger(GeoJSONStream.class);
+
+	/** The RFC 8142 record separator, which may start each GeoJSONSeq line. */
+	private static final char RS = '\u001e';
+
+	/** The number of features written in one parallel batch to GeoJSONSeq files. */
+	private static final int WRITE_BATCH_SIZE = 10000;
+
+	//FeatureJSON is not thread safe: use one per thread
+	private static final ThreadLocal<FeatureJSON> FJSON = ThreadLocal.withInitial(FeatureJSON::new);
+
+
+
+	/**
+	 * Stream the features of a GeoJSON FeatureCollection document.
+	 *
+	 * @param file The GeoJSON file.
+	 * @param filter A filter to select the features. Applied while parsing. Can be null.
+	 * @param bbox A bounding box to select the features whose geometry envelope intersect it. Applied while parsing. Can be null.
+	 * @param idAtt The identifier attribute. Can be null.
+	 * @param consumer The function receiving each feature, once parsed.
+	 */
+	public static void read(File file, Filter filter, Envelope bbox, String idAtt, Consumer<Feature> consumer) {
+		try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+			FeatureIterator<SimpleFeature> it = new FeatureJSON().streamFeatureCollection(input);
+			try {
+				while(it.hasNext()) {
+					SimpleFeature sf = it.next();
+					if(!keep(sf, filter, bbox)) continue;
+					consumer.accept(SimpleFeatureUtil.get(sf, idAtt));
+				}
+			} finally { it.close(); }
+		} catch (Exception e) { e.printStackTrace(); }
+	}
+
+	/**
+	 * Get the features of a GeoJSON FeatureCollection document, using streaming parsing.
+	 *
+	 * @param file
+	 * @param filter
+	 * @param bbox
+	 * @param idAtt
+	 * @return The features. In case of reading error, the features read so far.
+	 */
+	public static ArrayList<Feature> getFeatures(File file, Filter filter, Envelope bbox, String idAtt) {
+		ArrayList<Feature> fs = new ArrayList<Feature>();
+		read(file, filter, bbox, idAtt, f -> fs.add(f));
+		return fs;
+	}
+
+
+
+	/**
+	 * Get the features of a GeoJSONSeq (newline-delimited GeoJSON) file.
+	 *
+	 * @param file The GeoJSONSeq file.
+	 * @param filter A filter to select the features. Can be null.
+	 * @param bbox A bounding box to select the features whose geometry envelope intersect it. Can be null.
+	 * @param idAtt The identifier attribute. Can be null.
+	 * @param parallel Set to true to parse the lines in parallel. The output order is kept.
+	 * @return The features. In case of reading error, the features read so far.
+	 */
+	public static ArrayList<Feature> getFeaturesSeq(File file, Filter filter, Envelope bbox, String idAtt, boolean parallel) {
+		return getFeaturesSeq(file, filter, bbox, idAtt, null, parallel);
+	}
+
+	/**
+	 * Get the features of a GeoJSONSeq (newline-delimited GeoJSON) file,
+	 * with dictionary encoding of the string attribute values as the features are parsed.
+	 *
+	 * @param file The GeoJSONSeq file.
+	 * @param filter A filter to select the features. Can be null.
+	 * @param bbox A bounding box to select the features whose geometry envelope intersect it. Can be null.
+	 * @param idAtt The identifier attribute. Can be null.
+	 * @param sd The dictionary. If null, no encoding is done.
+	 * @param parallel Set to true to parse the lines in parallel. The output order is kept.
+	 * @return The features. In case of reading error, the features read so far.
+	 */
+	public static ArrayList<Feature> getFeaturesSeq(File file, Filter filter, Envelope bbox, String idAtt, StringDictionary sd, boolean parallel) {
+		ArrayList<Feature> fs = new ArrayList<Feature>();
+		try (Stream<String> lines = Files.lines(file.toPath(), StandardCharsets.UTF_8)) {
+			Stream<String> st = lines; if(parallel) st = st.parallel();
+			//NB: the lines are parsed in parallel, but the features are added in file order
+			st
+					.map(line -> parseLine(line))
+					.filter(sf -> sf != null && keep(sf, filter, bbox))
+					.map(sf -> {
+						Feature f = SimpleFeatureUtil.get(sf, idAtt);
+						if(sd != null) sd.encode(f);
+						return f;
+					})
+					.forEachOrdered(f -> fs.add(f));
+		} catch (Exception e) { e.printStackTrace(); }
+		return fs;
+	}
+
+	/**
+	 * Get the schema of a GeoJSONSeq file, from its first feature.
+	 *
+	 * @param file
+	 * @return
+	 */
+	public static SimpleFeatureType getSchemaSeq(File file) {
+		try (BufferedReader br = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while((line = br.readLine()) != null) {
+				SimpleFeature sf = parseLine(line);
+				if(sf != null) return sf.getFeatureType();
+			}
+		} catch (Exception e) { e.printStackTrace(); }
+		return null;
+	}
+
+	/**
+	 * Save features as a GeoJSONSeq (newline-delimited GeoJSON) file.
+	 *
+	 * @param fs The features.
+	 * @param ft The feature type.
+	 * @param file The output file.
+	 * @param parallel Set to true to encode the features in parallel. The output order is kept.
+	 */
+	public static void saveSeq(Collection<? extends Feature> fs, SimpleFeatureType ft, File file, boolean parallel) {
+		ThreadLocal<SimpleFeatureBuilder> sfbs = ThreadLocal.withInitial(() -> new SimpleFeatureBuilder(ft));
+		try (BufferedWriter bw = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			ArrayList<Feature> batch = new ArrayList<Feature>(Math.min(fs.size(), WRITE_BATCH_SIZE));
+			for(Feature f : fs) {
+				batch.add(f);
+				if(batch.size() < WRITE_BATCH_SIZE) continue;
+				writeBatch(batch, ft, sfbs, bw, parallel);
+				batch.clear();
+			}
+			writeBatch(batch, ft, sfbs, bw, parallel);
+		} catch (IOException e) { e.printStackTrace(); }
+	}
+
+	//encode a batch of features and write it
+	private static void writeBatch(List<Feature> batch, SimpleFeatureType ft, ThreadLocal<SimpleFeatureBuilder> sfbs, BufferedWriter bw, boolean parallel) throws IOException {
+		if(batch.size() == 0) return;
+		Stream<Feature> st = batch.stream(); if(parallel) st = st.parallel();
+		List<String> lines = st.map(f -> toLine(f, ft, sfbs.get())).collect(Collectors.toList());
+		for(String line : lines) {
+			if(line == null) continue;
+			bw.write(line);
+			bw.newLine();
+		}
+	}
+
+
+
+	//parse a GeoJSONSeq line
+	private static SimpleFeature parseLine(String line) {
+		if(line.length()>0 && line.charAt(0) == RS) line = line.substring(1);
+		if(line.trim().isEmpty()) return null;
+		try {
+			return FJSON.get().readFeature(new StringReader(line));
+		} catch (IOException e) {
+			LOGGER.warn("Could not parse GeoJSONSeq line: " + (line.length()>100? line.substring(0, 100)+"..." : line));
+		}
+		return null;
+	}
+
+	//encode a feature as a GeoJSONSeq line
+	private static String toLine(Feature f, SimpleFeatureType ft, SimpleFeatureBuilder sfb) {
+		String geomAtt = ft.getGeometryDescriptor().getLocalName();
+		for(int i=0; i<ft.getAttributeCount(); i++) {
+			String att = ft.getDescriptor(i).getLocalName();
+			sfb.set(att, att.equals(geomAtt)? f.getGeometry() : f.getAttribute(att));
+		}
+		SimpleFeature sf = sfb.buildFeature(f.getID());
+		try {
+			return FJSON.get().toString(sf);
+		} catch (IOException e) {
+			LOGGER.warn("Could not encode feature " + f.getID() + " as GeoJSON.");
+		}
+		return null;
+	}
+
+	//check if a feature should be kept, with filter and bbox
+	private static boolean keep(SimpleFeature sf, Filter filter, Envelope bbox) {
+		if(filter != null && !filter.evaluate(sf)) return false;
+		if(bbox != null) {
+			Geometry g = (Geometry) sf.getDefaultGeometry();
+			if(g == null || !bbox.intersects(g.getEnvelopeInternal())) return false;
+		}
+		return true;
+	}
+
+}
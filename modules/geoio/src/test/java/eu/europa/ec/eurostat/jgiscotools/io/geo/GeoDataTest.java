@@ -3,11 +3,21 @@
  */
 package eu.europa.ec.eurostat.jgiscotools.io.geo;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
+import org.geotools.referencing.CRS;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import eu.europa.ec.eurostat.jgiscotools.feature.Feature;
+import eu.europa.ec.eurostat.jgiscotools.feature.SimpleFeatureUtil;
+import eu.europa.ec.eurostat.jgiscotools.util.SpaceFillingCurve;
 import junit.framework.TestCase;
 
 /**
@@ -69,6 +79,93 @@ public class GeoDataTest extends TestCase {
 		}
 	}
 
+	/***/
+	public void testLoadGPKGLayers() {
+		String[] layers = GeoData.getLayers(path + "test.gpkg");
+		assertEquals(1, layers.length);
+
+		ArrayList<Feature> fs = GeoData.getFeatures(path + "test.gpkg", layers[0], "id", null);
+		assertEquals(3, fs.size());
+
+		assertNull(GeoData.getFeatures(path + "test.gpkg", "sdfdsfkjsfh", "id", null));
+
+		Map<String, ArrayList<Feature>> fsl = GeoData.getFeaturesByLayer(path + "test.gpkg", null, "id", null, true);
+		assertEquals(1, fsl.size());
+		assertEquals(3, fsl.get(layers[0]).size());
+	}
+
+	/***/
+	public void testGeoJSONSeq() {
+		GeoData gd = new GeoData(path + "test.geojson", "id");
+		File out = new File("target/io/testSave.geojsonl");
+		out.getParentFile().mkdirs();
+		GeoJSONStream.saveSeq(gd.getFeatures(), SimpleFeatureUtil.getFeatureType(gd.getFeatures(), "geometry", gd.getCRS()), out, true);
+
+		ArrayList<Feature> fs = GeoJSONStream.getFeaturesSeq(out, null, null, "id", true);
+		assertEquals(3, fs.size());
+		for(int i=0; i<fs.size(); i++)
+			assertEquals(gd.getFeatures().get(i).getID(), fs.get(i).getID());
+
+		assertEquals(3, GeoData.getFeatures(out.getPath(), "id").size());
+		assertEquals(0, GeoJSONStream.getFeaturesSeq(out, null, new Envelope(-1e9, -1e9+1, -1e9, -1e9+1), "id", false).size());
+
+		//save through GeoData
+		GeoData.save(gd.getFeatures(), "target/io/testSave2.geojsonl", gd.getCRS());
+		ArrayList<Feature> fs2 = GeoData.getFeatures("target/io/testSave2.geojsonl", "id");
+		assertEquals(3, fs2.size());
+		for(int i=0; i<fs2.size(); i++)
+			assertEquals(fs.get(i).getAttributes(), fs2.get(i).getAttributes());
+
+		//reading errors: same output as for GeoJSON
+		assertEquals(0, GeoJSONStream.getFeaturesSeq(new File("target/io/missing.geojsonl"), null, null, "id", true).size());
+		assertEquals(0, GeoJSONStream.getFeatures(new File("target/io/missing.geojson"), null, null, "id").size());
+	}
+
+	/***/
+	public void testLoadSeveralFiles() {
+		List<String> paths = GeoData.getFilePaths(path, "test.{gpkg,shp}");
+		assertEquals(2, paths.size());
+		ArrayList<Feature> fs = GeoData.getFeatures(paths, "id", null, 2);
+		assertEquals(6, fs.size());
+		for(Feature f : fs)
+			assertEquals(fs.get(0).getAttributes().keySet(), f.getAttributes().keySet());
+	}
+
+	/***/
+	public void testLoadSeveralFilesDifferentSchemas() throws Exception {
+		CoordinateReferenceSystem crs = GeoData.getCRS(path + "test.gpkg");
+		CoordinateReferenceSystem crs2 = CRS.decode("EPSG:3857");
+
+		//first file: additional integer and string attributes
+		ArrayList<Feature> fs1 = GeoData.getFeatures(path + "test.gpkg", "id");
+		for(Feature f : fs1) { f.setAttribute("val", 1); f.setAttribute("onlyA", "a"); }
+		GeoData.save(fs1, "target/io/multi/a.gpkg", crs, true);
+
+		//second file: decimal attribute with same name, in another CRS
+		ArrayList<Feature> fs2 = GeoData.getFeatures(path + "test.gpkg", "id");
+		for(Feature f : fs2) f.setAttribute("val", 2.5);
+		CRSUtil.project(fs2, crs, crs2, false, false, null);
+		GeoData.save(fs2, "target/io/multi/b.gpkg", crs2, true);
+
+		ArrayList<Feature> fs = GeoData.getFeatures(GeoData.getFilePaths("target/io/multi/", "*.gpkg"), "id", null, 2);
+		assertEquals(6, fs.size());
+		for(Feature f : fs) {
+			assertEquals(fs.get(0).getAttributes().keySet(), f.getAttributes().keySet());
+			assertTrue(f.getAttributes().containsKey("onlyA"));
+			assertEquals(Double.class, f.getAttribute("val").getClass());
+		}
+		assertEquals(1.0, fs.get(0).getAttribute("val"));
+		assertEquals(2.5, fs.get(5).getAttribute("val"));
+		assertNull(fs.get(5).getAttribute("onlyA"));
+
+		//the features of the second file are reprojected back
+		for(int i=0; i<3; i++) {
+			Envelope e1 = fs.get(i).getGeometry().getEnvelopeInternal(), e2 = fs.get(i+3).getGeometry().getEnvelopeInternal();
+			assertEquals(e1.getMinX(), e2.getMinX(), 0.01);
+			assertEquals(e1.getMaxY(), e2.getMaxY(), 0.01);
+		}
+	}
+
 	/***/
 	public void testSaveGPKG() { testSave(".gpkg"); }
 	/***/
@@ -129,4 +226,46 @@ public class GeoDataTest extends TestCase {
 		for(Feature diff : diffs) System.out.println(diff.getAttribute("GeoDiff"));*/
 
 	}
+
+	/***/
+	public void testSaveWithSchemaSample() {
+		ArrayList<Feature> fs = new GeoData(path + "test.gpkg", "id").getFeatures();
+		//attribute in all features, and attribute only in the last feature, out of the sample
+		for(Feature f : fs) f.setAttribute("all", "value");
+		fs.get(fs.size()-1).setAttribute("late", "value");
+
+		String out = "target/io/testSaveSample.gpkg";
+		GeoData.save(fs, out, GeoData.getCRS(path + "test.gpkg"), true, 1);
+		ArrayList<Feature> fs2 = new GeoData(out, "id").getFeatures();
+		assertEquals(fs.size(), fs2.size());
+		for(Feature f : fs2) assertEquals("value", f.getAttribute("all"));
+		assertNull(fs2.get(fs2.size()-1).getAttribute("late"));
+	}
+
+	/***/
+	public void testSaveDeclaredSchemaWithoutGeometryType() {
+		ArrayList<Feature> fs = new GeoData(path + "test.gpkg", "id").getFeatures();
+		Map<String, Class<?>> types = new HashMap<>();
+		types.put("name", String.class);
+
+		String out = "target/io/testSaveDeclared.gpkg";
+		GeoData.save(fs, out, GeoData.getCRS(path + "test.gpkg"), types, null, true);
+		ArrayList<Feature> fs2 = new GeoData(out, "id").getFeatures();
+		assertEquals(fs.size(), fs2.size());
+		for(int i=0; i<fs.size(); i++) assertEquals(fs.get(i).getGeometry().getGeometryType(), fs2.get(i).getGeometry().getGeometryType());
+	}
+
+	/***/
+	public void testLoadOptions() {
+		ArrayList<Feature> fs = new GeoData(path + "test.gpkg", "id")
+				.setSpatialSortCurve(SpaceFillingCurve.HILBERT)
+				.setDictionaryEncoding(100)
+				.getFeatures();
+		//the options apply only to their own data source
+		ArrayList<Feature> fsPlain = new GeoData(path + "test.gpkg", "id").getFeatures();
+		assertEquals(fsPlain.size(), fs.size());
+		HashSet<String> ids = new HashSet<>();
+		for(Feature f : fs) ids.add(f.getID());
+		for(Feature f : fsPlain) assertTrue(ids.contains(f.getID()));
+	}
 }
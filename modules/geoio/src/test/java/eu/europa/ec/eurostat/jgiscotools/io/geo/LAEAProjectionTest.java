@@ -0,0 +1,67 @@
+package eu.europa.ec.eurostat.jgiscotools.io.geo;
+
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.operation.MathTransform;
+
+import eu.europa.ec.eurostat.jgiscotools.util.LAEAProjection;
+import junit.framework.TestCase;
+
+public class LAEAProjectionTest extends TestCase {
+
+	/*public static void main(String[] args) {
+		junit.textui.TestRunner.run(LAEAProjectionTest.class);
+	}*/
+
+	//test points covering the extent of ETRS89-LAEA
+	private static double[] getTestPoints() {
+		int nb = 0;
+		double[] cs = new double[2 * 21 * 17];
+		for(double lon = -40; lon <= 60; lon += 5)
+			for(double lat = 25; lat <= 85; lat += 3.75) {
+				cs[2*nb] = lon; cs[2*nb+1] = lat; nb++;
+			}
+		return cs;
+	}
+
+	public void testForwardEPSGExample() {
+		//example from EPSG guidance note 7-2
+		double[] c = new double[] { 5, 50 };
+		LAEAProjection.forward(c, c, 1);
+		assertEquals(3962799.45, c[0], 0.01);
+		assertEquals(2999718.85, c[1], 0.01);
+	}
+
+	public void testForwardAgainstGeoTools() throws Exception {
+		MathTransform mt = CRS.findMathTransform(CRS.decode("EPSG:4258", true), CRS.decode("EPSG:3035", true), true);
+		double[] cs = getTestPoints();
+		int n = cs.length/2;
+		double[] gt = new double[cs.length], k = new double[cs.length];
+		mt.transform(cs, 0, gt, 0, n);
+		LAEAProjection.forward(cs, k, n);
+		for(int i=0; i<cs.length; i++)
+			assertEquals(gt[i], k[i], 1e-3);
+	}
+
+	public void testInverseAgainstGeoTools() throws Exception {
+		MathTransform mt = CRS.findMathTransform(CRS.decode("EPSG:3035", true), CRS.decode("EPSG:4258", true), true);
+		double[] xy = getTestPoints();
+		int n = xy.length/2;
+		LAEAProjection.forward(xy, xy, n);
+		double[] gt = new double[xy.length], k = new double[xy.length];
+		mt.transform(xy, 0, gt, 0, n);
+		LAEAProjection.inverse(xy, k, n);
+		for(int i=0; i<xy.length; i++)
+			assertEquals(gt[i], k[i], 1e-7);
+	}
+
+	public void testRoundTrip() {
+		double[] cs = getTestPoints();
+		double[] cs_ = cs.clone();
+		int n = cs.length/2;
+		LAEAProjection.forward(cs_, cs_, n);
+		LAEAProjection.inverse(cs_, cs_, n);
+		for(int i=0; i<cs.length; i++)
+			assertEquals(cs[i], cs_[i], 1e-7);
+	}
+
+}
@@ -21,6 +21,7 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 
 import eu.europa.ec.eurostat.jgiscotools.feature.Feature;
+import eu.europa.ec.eurostat.jgiscotools.feature.StringDictionary;
 
 /**
  * @author julien Gaffuri
@@ -50,14 +51,32 @@ public class CSVUtil {
 	 * @return
 	 */
 	public static ArrayList<Map<String,String>> load(String filePath, CSVFormat cf) {
+		return load(filePath, cf, 0);
+	}
+
+	/**
+	 * Load a CSV file, with dictionary encoding of the values:
+	 * All occurrences of a same value in a column share a single String instance.
+	 * 
+	 * @param filePath
+	 * @param cf
+	 * @param maxCardinality The maximum number of distinct values of a column to be encoded. If not positive, no encoding is done.
+	 * @return
+	 */
+	public static ArrayList<Map<String,String>> load(String filePath, CSVFormat cf, int maxCardinality) {
 		ArrayList<Map<String,String>> data = new ArrayList<>();
+		StringDictionary sd = maxCardinality > 0? new StringDictionary(maxCardinality) : null;
 		try {
 			//parse file
 			Reader in = new FileReader(filePath);
 			Iterable<CSVRecord> raws = cf.parse(in);
 
 			//read data
-			for (CSVRecord raw : raws) data.add(raw.toMap());
+			for (CSVRecord raw : raws) {
+				Map<String,String> row = raw.toMap();
+				if(sd != null) sd.encode(row);
+				data.add(row);
+			}
 
 			in.close();
 		} catch (Exception e) { e.printStackTrace(); }
@@ -4,25 +4,38 @@
 package eu.europa.ec.eurostat.jgiscotools.graph.base;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.locationtech.jts.algorithm.RayCrossingCounter;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateArrays;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Location;
 import org.locationtech.jts.geom.MultiLineString;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
 import org.locationtech.jts.geom.TopologyException;
-import org.locationtech.jts.index.SpatialIndex;
 import org.locationtech.jts.index.quadtree.Quadtree;
+import org.locationtech.jts.noding.FastNodingValidator;
+import org.locationtech.jts.noding.NodedSegmentString;
+import org.locationtech.jts.noding.Noder;
+import org.locationtech.jts.noding.SegmentString;
+import org.locationtech.jts.noding.snapround.MCIndexSnapRounder;
 import org.locationtech.jts.operation.linemerge.LineMerger;
-import org.locationtech.jts.operation.polygonize.Polygonizer;
 import org.locationtech.jts.operation.union.UnaryUnionOp;
 
 import eu.europa.ec.eurostat.jgiscotools.feature.Feature;
@@ -30,6 +43,7 @@ import eu.europa.ec.eurostat.jgiscotools.feature.FeatureUtil;
 import eu.europa.ec.eurostat.jgiscotools.feature.JTSGeomUtil;
 import eu.europa.ec.eurostat.jgiscotools.graph.base.structure.Edge;
 import eu.europa.ec.eurostat.jgiscotools.graph.base.structure.Graph;
+import eu.europa.ec.eurostat.jgiscotools.graph.base.structure.HalfEdge;
 import eu.europa.ec.eurostat.jgiscotools.graph.base.structure.Node;
 
 /**
@@ -50,75 +64,85 @@ public class GraphBuilder {
 		Graph g = new Graph();
 
 		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Create nodes and edges");
-		SpatialIndex siNodes = new Quadtree();
-		for(LineString ls : lines){
-			if(ls.isClosed()) {
-				Coordinate c = ls.getCoordinateN(0);
-				Node n = g.getNodeAt(c);
-				if(n==null) {
-					n=g.buildNode(c);
-					siNodes.insert(new Envelope(n.getC()), n);
-				}
-				Coordinate[] coords = ls.getCoordinates();
-				coords[0]=n.getC(); coords[coords.length-1]=n.getC();
-				g.buildEdge(n, n, coords);
-			} else {
-				Coordinate c;
-				c = ls.getCoordinateN(0);
-				Node n0 = g.getNodeAt(c);
-				if(n0==null) {
-					n0 = g.buildNode(c);
-					siNodes.insert(new Envelope(n0.getC()), n0);
-				}
-				c = ls.getCoordinateN(ls.getNumPoints()-1);
-				Node n1 = g.getNodeAt(c);
-				if(n1==null) {
-					n1 = g.buildNode(c);
-					siNodes.insert(new Envelope(n1.getC()), n1);
-				}
-				Coordinate[] coords = ls.getCoordinates();
-				coords[0]=n0.getC(); coords[coords.length-1]=n1.getC();
-				g.buildEdge(n0, n1, coords);
-			}
-		}
-		siNodes = null;
+		//the nodes are retrieved by exact position, and the spatial indexes are built at the end
+		g.startBulkLoading(lines.size());
+		buildEdges(g, lines);
+		g.endBulkLoading();
 
 		if( !buildFaces ) {
 			if(LOGGER.isDebugEnabled()) LOGGER.debug("Graph built ("+g.getNodes().size()+" nodes, "+g.getEdges().size()+" edges)");
 			return g;
 		}
 
-		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Build face geometries with polygonisation");
-		Polygonizer pg = new Polygonizer();
-		pg.add(lines);
-		lines = null;
-		@SuppressWarnings("unchecked")
-		Collection<Polygon> polys = pg.getPolygons();
-		pg = null;
+		buildFaces(g);
 
-		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Create faces and link them to edges");
-		for(Polygon poly : polys){
-			//get candidate edges
-			Set<Edge> edges = new HashSet<Edge>();
-			Collection<Edge> es = g.getEdgesAt(poly.getEnvelopeInternal());
-			for(Edge e : es){
-				Geometry edgeGeom = e.getGeometry();
-				if(!edgeGeom.getEnvelopeInternal().intersects(poly.getEnvelopeInternal())) continue;
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("Graph built ("+g.getNodes().size()+" nodes, "+g.getEdges().size()+" edges, "+g.getFaces().size()+" faces)");
 
-				//Geometry inter = poly.getBoundary().intersection(edgeGeom);
-				//if(inter.getLength()==0) continue;
+		return g;
+	}
 
-				if(!poly.covers(edgeGeom)) continue;
+	//create the edges of the lines, and their nodes
+	private static void buildEdges(Graph g, Collection<LineString> lines) {
+		for(LineString ls : lines){
+			Coordinate[] coords = ls.getCoordinates();
+			Node n0 = g.getCreateNodeAt(coords[0]);
+			Node n1 = ls.isClosed()? n0 : g.getCreateNodeAt(coords[coords.length-1]);
+			coords[0]=n0.getC(); coords[coords.length-1]=n1.getC();
+			g.buildEdge(n0, n1, coords);
+		}
+	}
 
-				edges.add(e);
+	//create the faces of a graph, from the boundary cycles of its edges
+	private static void buildFaces(Graph g) {
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Build boundary cycles of edges");
+		List<List<HalfEdge>> cycles = HalfEdge.getCycles(g.getEdges());
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Create faces from the " + cycles.size() + " cycles");
+		//each cycle with a counterclockwise ring is a face. Its shell is the largest one.
+		List<Set<Edge>> faceEdges = new ArrayList<Set<Edge>>();
+		List<Coordinate[]> shells = new ArrayList<Coordinate[]>();
+		List<Double> areas = new ArrayList<Double>();
+		Quadtree shellIndex = new Quadtree();
+		//the other cycles are outer boundaries of connected parts of the graph
+		List<List<HalfEdge>> outers = new ArrayList<List<HalfEdge>>();
+		for(List<HalfEdge> cycle : cycles) {
+			Coordinate[] shell = null; double maxArea = 0;
+			for(List<HalfEdge> ring : HalfEdge.getRings(cycle)) {
+				Coordinate[] cs = HalfEdge.getCoordinates(ring);
+				if(cs.length < 4) continue;
+				double area = HalfEdge.getSignedArea(cs);
+				if(area > maxArea) { maxArea = area; shell = cs; }
 			}
-			//create face
-			g.buildFace(edges);
+			if(shell == null) { outers.add(cycle); continue; }
+
+			Set<Edge> es = new HashSet<Edge>();
+			for(HalfEdge h : cycle) es.add(h.getEdge());
+			Envelope env = new Envelope();
+			for(Coordinate c : shell) env.expandToInclude(c);
+			shellIndex.insert(env, faceEdges.size());
+			faceEdges.add(es); shells.add(shell); areas.add(maxArea);
 		}
+		cycles = null;
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Link " + outers.size() + " outer boundaries to the faces around");
+		//the face around is the smallest one whose shell contains the outer boundary
+		for(List<HalfEdge> outer : outers) {
+			Coordinate c = outer.get(0).getOrigin().getC();
+			int fi = -1;
+			for(Object o : shellIndex.query(new Envelope(c))) {
+				int i = (Integer)o;
+				if(fi != -1 && areas.get(i) >= areas.get(fi)) continue;
+				if(RayCrossingCounter.locatePointInRing(c, shells.get(i)) != Location.INTERIOR) continue;
+				fi = i;
+			}
+			//no face around: it is the outer boundary of the graph
+			if(fi == -1) continue;
+			for(HalfEdge h : outer) faceEdges.get(fi).add(h.getEdge());
+		}
+		outers = null; shells = null; areas = null; shellIndex = null;
 
-		if(LOGGER.isDebugEnabled()) LOGGER.debug("Graph built ("+g.getNodes().size()+" nodes, "+g.getEdges().size()+" edges, "+g.getFaces().size()+" faces)");
-
-		return g;
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Create faces and link them to edges");
+		for(Set<Edge> es : faceEdges) g.buildFace(es);
 	}
 
 	/**
@@ -130,6 +154,7 @@ public class GraphBuilder {
 	 */
 	public static Graph buildFromLinearFeaturesNonPlanar(Collection<Feature> sections) {
 		Graph g = new Graph();
+		g.startBulkLoading(sections.size());
 		for(Feature f : sections) {
 			MultiLineString mls = (MultiLineString) JTSGeomUtil.toMulti(f.getGeometry());
 			for(int i=0; i<mls.getNumGeometries(); i++) {
@@ -140,6 +165,7 @@ public class GraphBuilder {
 				e.obj = f;
 			}
 		}
+		g.endBulkLoading();
 		return g;
 	}
 
@@ -152,12 +178,14 @@ public class GraphBuilder {
 	 */
 	public static Graph buildFromLinearGeometriesNonPlanar(Collection<LineString> lines) {
 		Graph g = new Graph();
+		g.startBulkLoading(lines.size());
 		for(LineString ls : lines) {
 			//for each, create edge and link it to nodes (if it exists) or create new
 			Coordinate[] cs = ls.getCoordinates();
 			Node n1 = g.getCreateNodeAt(cs[0]), n2 = g.getCreateNodeAt(cs[cs.length-1]);
 			g.buildEdge(n1, n2, cs);
 		}
+		g.endBulkLoading();
 		return g;
 	}
 
@@ -168,12 +196,26 @@ public class GraphBuilder {
 	 * @return
 	 */
 	public static Graph buildFromLinearFeaturesPlanar(Collection<Feature> sections, boolean buildFaces) {
+		return buildFromLinearFeaturesPlanar(sections, buildFaces, -1, false);
+	}
+
+	/**
+	 * Build planar graph from sections, tile by tile.
+	 * See {@link #buildFromLinearGeometriesPlanar(Collection, boolean, double, boolean)}.
+	 * 
+	 * @param sections
+	 * @param buildFaces
+	 * @param tileSize The tile size. If not positive, the graph is built without tiles.
+	 * @param parallel
+	 * @return
+	 */
+	public static Graph buildFromLinearFeaturesPlanar(Collection<Feature> sections, boolean buildFaces, double tileSize, boolean parallel) {
 
 		//get feature geometries
 		Collection<LineString> geoms = JTSGeomUtil.getLineStrings( FeatureUtil.getGeometries(sections) );
 
 		//build planar graph from geometries
-		Graph g = buildFromLinearGeometriesPlanar(geoms, buildFaces);
+		Graph g = buildFromLinearGeometriesPlanar(geoms, buildFaces, tileSize, parallel);
 		geoms.clear(); geoms = null;
 
 		//link sections and edges
@@ -210,7 +252,13 @@ public class GraphBuilder {
 
 	public static Graph buildFromLinearGeometriesPlanar(Collection<LineString> geoms, boolean buildFaces) {
 		if(LOGGER.isDebugEnabled()) LOGGER.debug("Build graph from "+geoms.size()+" geometries.");
+		Collection<LineString> lines = getPlanarLines(geoms);
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("     done. " + lines.size() + " lines obtained");
+		return build(lines, buildFaces);
+	}
 
+	//node the lines and merge them at their degree 2 nodes
+	private static Collection<LineString> getPlanarLines(Collection<LineString> geoms) {
 		if(LOGGER.isDebugEnabled()) LOGGER.debug("     compute union of " + geoms.size() + " lines...");
 		Geometry union = new GeometryFactory().buildGeometry(geoms).union();
 
@@ -219,12 +267,169 @@ public class GraphBuilder {
 		lm.add(union); union = null;
 		@SuppressWarnings("unchecked")
 		Collection<LineString> lines = lm.getMergedLineStrings(); lm = null;
-		if(LOGGER.isDebugEnabled()) LOGGER.debug("     done. " + lines.size() + " lines obtained");
+		return lines;
+	}
 
-		return build(lines, buildFaces);
+
+
+	//the shift of the tile grid origin, as a fraction of the tile size.
+	//An arbitrary value is used, so that the tile borders are unlikely to coincide with the data lines, which are often along round coordinates.
+	private static final double TILE_ORIGIN_SHIFT = 0.3819660112501051;
+
+	/**
+	 * Build planar graph from lines, tile by tile.
+	 * The lines are cut along the borders of a grid of square tiles, and the planar lines of each tile are computed independently, possibly in parallel.
+	 * The tile graphs are then stitched along the tile borders: the edges cut by a border are merged back, without the cut vertex.
+	 * The result is the one of {@link #buildFromLinearGeometriesPlanar(Collection, boolean)}, except for lines intersecting exactly on a tile border or lying along a tile border,
+	 * where the noding may be affected by floating point precision.
+	 * 
+	 * @param geoms
+	 * @param buildFaces
+	 * @param tileSize The tile size. It should be large compared to the line segments. If not positive, the graph is built without tiles.
+	 * @param parallel
+	 * @return
+	 */
+	public static Graph buildFromLinearGeometriesPlanar(Collection<LineString> geoms, boolean buildFaces, double tileSize, boolean parallel) {
+		if(tileSize <= 0) return buildFromLinearGeometriesPlanar(geoms, buildFaces);
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("Build graph from "+geoms.size()+" geometries, with tiles of size "+tileSize);
+
+		//the tile grid origin
+		Envelope env = new Envelope();
+		for(LineString ls : geoms) env.expandToInclude(ls.getEnvelopeInternal());
+		if(env.isNull()) return new Graph();
+		double x0 = env.getMinX() - TILE_ORIGIN_SHIFT*tileSize, y0 = env.getMinY() - TILE_ORIGIN_SHIFT*tileSize;
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("     cut lines along tile borders...");
+		Set<Coordinate> cuts = ConcurrentHashMap.newKeySet();
+		Stream<LineString> st = geoms.stream(); if(parallel) st = st.parallel();
+		Map<Long, List<LineString>> tiles = st
+				.flatMap(ls -> cutAlongTileBorders(ls, x0, y0, tileSize, cuts).stream())
+				.collect(Collectors.groupingByConcurrent(ls -> getTileKey(ls, x0, y0, tileSize)));
+		st.close();
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("     compute planar lines of " + tiles.size() + " tiles...");
+		Stream<List<LineString>> stt = tiles.values().stream(); if(parallel) stt = stt.parallel();
+		List<LineString> lines = stt.flatMap(tls -> getPlanarLines(tls).stream()).collect(Collectors.toList());
+		stt.close();
+		tiles.clear(); tiles = null;
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("     build graph from " + lines.size() + " lines and stitch it along tile borders...");
+		Graph g = new Graph();
+		g.startBulkLoading(lines.size());
+		buildEdges(g, lines);
+		lines.clear(); lines = null;
+		int nb = stitchAlongTileBorders(g, x0, y0, tileSize, cuts);
+		cuts.clear();
+		g.endBulkLoading();
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("     " + nb + " edges merged along tile borders");
+
+		if(buildFaces) buildFaces(g);
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("Graph built ("+g.getNodes().size()+" nodes, "+g.getEdges().size()+" edges, "+g.getFaces().size()+" faces)");
+		return g;
+	}
+
+	//cut a line along the tile borders, so that each piece lies within a single tile. The cut points which are not vertices of the line are added to cuts.
+	private static List<LineString> cutAlongTileBorders(LineString ls, double x0, double y0, double tileSize, Set<Coordinate> cuts) {
+		Coordinate[] cs = ls.getCoordinates();
+		List<LineString> out = new ArrayList<LineString>();
+		List<Coordinate> piece = new ArrayList<Coordinate>();
+		piece.add(cs[0]);
+		for(int i=1; i<cs.length; i++) {
+			Coordinate p = cs[i-1], q = cs[i];
+
+			//the crossings are interpolated from the smallest segment end to the largest one, whatever the segment direction:
+			//a segment and its reverse, shared by adjacent regions, are cut at exactly the same points.
+			boolean rev = p.compareTo(q) > 0;
+			Coordinate a = rev? q : p, b = rev? p : q;
+
+			//the crossings of the segment with the tile borders, strictly within the segment, as (t,x,y), t being from p to q
+			List<double[]> crs = new ArrayList<double[]>();
+			for(long k = (long)Math.floor((Math.min(a.x, b.x)-x0)/tileSize)+1; x0+k*tileSize < Math.max(a.x, b.x); k++) {
+				double x = x0+k*tileSize;
+				if(x <= Math.min(a.x, b.x)) continue;
+				double t = (x-a.x)/(b.x-a.x);
+				crs.add(new double[] { rev? 1-t : t, x, a.y+t*(b.y-a.y) });
+			}
+			for(long k = (long)Math.floor((Math.min(a.y, b.y)-y0)/tileSize)+1; y0+k*tileSize < Math.max(a.y, b.y); k++) {
+				double y = y0+k*tileSize;
+				if(y <= Math.min(a.y, b.y)) continue;
+				double t = (y-a.y)/(b.y-a.y);
+				crs.add(new double[] { rev? 1-t : t, a.x+t*(b.x-a.x), y });
+			}
+			crs.sort((c1, c2) -> Double.compare(c1[0], c2[0]));
+
+			//cut at the crossings
+			double tPrev = -1;
+			for(double[] cr : crs) {
+				if(cr[0] == tPrev) continue;
+				tPrev = cr[0];
+				Coordinate c = new Coordinate(cr[1], cr[2]);
+				cuts.add(c);
+				piece.add(c);
+				addPiece(out, piece, ls.getFactory());
+				piece = new ArrayList<Coordinate>();
+				piece.add(c);
+			}
+
+			//cut at the vertices on a tile border
+			piece.add(q);
+			if(i < cs.length-1 && isOnTileBorder(q, x0, y0, tileSize)) {
+				addPiece(out, piece, ls.getFactory());
+				piece = new ArrayList<Coordinate>();
+				piece.add(q);
+			}
+		}
+		addPiece(out, piece, ls.getFactory());
+		return out;
+	}
+
+	private static void addPiece(List<LineString> out, List<Coordinate> piece, GeometryFactory gf) {
+		if(piece.size() < 2) return;
+		LineString ls = gf.createLineString(piece.toArray(new Coordinate[piece.size()]));
+		if(ls.getLength() > 0) out.add(ls);
 	}
 
+	private static boolean isOnTileBorder(Coordinate c, double x0, double y0, double tileSize) {
+		return c.x == x0 + Math.round((c.x-x0)/tileSize)*tileSize || c.y == y0 + Math.round((c.y-y0)/tileSize)*tileSize;
+	}
+
+	//the key of the tile of a line, which is the one of the middle of its first segment
+	private static long getTileKey(LineString ls, double x0, double y0, double tileSize) {
+		Coordinate p = ls.getCoordinateN(0), q = p;
+		for(int k=1; k<ls.getNumPoints() && q.equals2D(p); k++) q = ls.getCoordinateN(k);
+		long i = (long)Math.floor(((p.x+q.x)*0.5-x0)/tileSize), j = (long)Math.floor(((p.y+q.y)*0.5-y0)/tileSize);
+		return (i << 32) | (j & 0xFFFFFFFFL);
+	}
 
+	//merge the pairs of edges cut by a tile border. The cut points are removed from the merged edges. Return the number of merges.
+	private static int stitchAlongTileBorders(Graph g, double x0, double y0, double tileSize, Set<Coordinate> cuts) {
+		List<Node> ns = new ArrayList<Node>();
+		for(Node n : g.getNodes())
+			if(isOnTileBorder(n.getC(), x0, y0, tileSize)) ns.add(n);
+
+		int nb = 0;
+		for(Node n : ns) {
+			List<Edge> es = n.getEdgesAsList();
+			//the node should be linked to two different edges, which are not closed
+			if(es.size() != 2 || es.get(0) == es.get(1)) continue;
+			Edge e1 = es.get(0), e2 = es.get(1);
+			boolean e1ToN = e1.getN2() == n, e2FromN = e2.getN1() == n;
+			Node n1 = e1ToN? e1.getN1() : e1.getN2(), n2 = e2FromN? e2.getN2() : e2.getN1();
+
+			//build merged edge geometry, from n1 to n2
+			Coordinate[] cs1 = e1.getCoords(), cs2 = e2.getCoords();
+			int d = cuts.contains(n.getC())? 1 : 0;
+			Coordinate[] cs = new Coordinate[cs1.length + cs2.length - 1 - d];
+			for(int i=0; i<cs1.length-d; i++) cs[i] = e1ToN? cs1[i] : cs1[cs1.length-1-i];
+			for(int i=1; i<cs2.length; i++) cs[cs1.length-1-d+i] = e2FromN? cs2[i] : cs2[cs2.length-1-i];
+
+			g.remove(e1); g.remove(e2); g.remove(n);
+			g.buildEdge(n1, n2, cs);
+			nb++;
+		}
+		return nb;
+	}
 
 
 
@@ -240,6 +445,8 @@ public class GraphBuilder {
 		if(LOGGER.isDebugEnabled()) LOGGER.debug("     compute union of " + lineCol.size() + " lines...");
 		Geometry union = null;
 		GeometryFactory gf = new GeometryFactory();
+		//index of the lines, built on the first failure only
+		Quadtree lineIndex = null;
 		while(union == null)
 			try {
 				//union = new GeometryFactory().buildGeometry(lineCol);
@@ -250,10 +457,13 @@ public class GraphBuilder {
 				LOGGER.warn("     Geometry.union failed. Topology exception (found non-noded intersection) around: " + c.x +", "+c.y);
 				//LOGGER.warn("     "+e.getMessage());
 
-				Collection<Geometry> close = JTSGeomUtil.getGeometriesCloseTo(c, lineCol, 0.001);
+				if(lineIndex == null) lineIndex = JTSGeomUtil.getQuadtree(lineCol);
+				Collection<Geometry> close = JTSGeomUtil.getGeometriesCloseTo(c, lineIndex, 0.001);
 				Geometry unionClose = UnaryUnionOp.union(close, gf);
 				lineCol.removeAll(close);
+				for(Geometry g : close) lineIndex.remove(g.getEnvelopeInternal(), g);
 				lineCol.add(unionClose);
+				lineIndex.insert(unionClose.getEnvelopeInternal(), unionClose);
 				union = null;
 			}
 
@@ -268,21 +478,139 @@ public class GraphBuilder {
 
 
 		//decompose lines along the envelope (if provided)
-		if(env != null) {
-			Collection<LineString> lines_ = new HashSet<LineString>();
-			LineString envL = JTSGeomUtil.getBoundary(env);
-			for(LineString line : lines) {
-				if(JTSGeomUtil.containsSFS(env, line.getEnvelopeInternal())) { lines_.add(line); continue; }
-				MultiLineString inter = JTSGeomUtil.getLinear(envL.intersection(line));
-				if(inter==null || inter.isEmpty()) { lines_.add(line); continue; }
-				lines_.addAll(JTSGeomUtil.getLineStrings(inter));
-				lines_.addAll(JTSGeomUtil.getLineStrings(line.difference(inter)));
+		if(env != null) lines = decomposeAlongEnvelope(lines, env);
+
+		return build(lines, true);
+	}
+
+	//decompose lines along an envelope boundary
+	private static Collection<LineString> decomposeAlongEnvelope(Collection<LineString> lines, Envelope env) {
+		Collection<LineString> lines_ = new HashSet<LineString>();
+		LineString envL = JTSGeomUtil.getBoundary(env);
+		for(LineString line : lines) {
+			if(JTSGeomUtil.containsSFS(env, line.getEnvelopeInternal())) { lines_.add(line); continue; }
+			MultiLineString inter = JTSGeomUtil.getLinear(envL.intersection(line));
+			if(inter==null || inter.isEmpty()) { lines_.add(line); continue; }
+			lines_.addAll(JTSGeomUtil.getLineStrings(inter));
+			lines_.addAll(JTSGeomUtil.getLineStrings(line.difference(inter)));
+		}
+		return lines_;
+	}
+
+	/**
+	 * Build graph from a coverage of polygons, such as a tesselation of statistical units.
+	 * The polygon boundaries are noded with a snap-rounding noder under a fixed precision model.
+	 * Snap rounding is robust in most cases, but its output is not guaranteed to be fully noded:
+	 * it is validated, and if it is not, the boundaries are noded with a union, as with {@link #buildForTesselation(Collection, Envelope)}.
+	 * The boundaries shared by neighbour polygons are noded identically, and are kept once.
+	 * The envelope boundary (if provided) is noded together with the polygon boundaries, so that the parts of the boundaries along the envelope are separate edges.
+	 * The faces are built from the noded edges.
+	 * Note that the graph coordinates are rounded to the precision model.
+	 * 
+	 * @param geoms
+	 * @param env
+	 * @param scale The scale of the precision model, that is the inverse of the grid resolution. For example 1000 for a millimetre resolution with coordinates in metre.
+	 * If not positive, the boundaries are noded with a union, as with {@link #buildForTesselation(Collection, Envelope)}.
+	 * @return
+	 */
+	public static Graph buildForTesselation(Collection<MultiPolygon> geoms, Envelope env, double scale) {
+		if(scale <= 0) return buildForTesselation(geoms, env);
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("Build graph from "+geoms.size()+" geometries, with snap-rounding at scale "+scale);
+		PrecisionModel pm = new PrecisionModel(scale);
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Round boundary coordinates");
+		List<SegmentString> rings = new ArrayList<SegmentString>();
+		for(MultiPolygon mp : geoms)
+			for(int i=0; i<mp.getNumGeometries(); i++) {
+				Polygon p = (Polygon) mp.getGeometryN(i);
+				addRounded(rings, p.getExteriorRing().getCoordinates(), pm, null);
+				for(int j=0; j<p.getNumInteriorRing(); j++)
+					addRounded(rings, p.getInteriorRingN(j).getCoordinates(), pm, null);
 			}
-			//replace collection
-			lines.clear(); lines = lines_;
+		if(env != null) addRounded(rings, JTSGeomUtil.getBoundary(env).getCoordinates(), pm, env);
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Snap-round " + rings.size() + " rings...");
+		Noder noder = new MCIndexSnapRounder(pm);
+		noder.computeNodes(rings);
+		rings = null;
+		Collection<?> noded = noder.getNodedSubstrings();
+		noder = null;
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Check noding of " + noded.size() + " lines");
+		FastNodingValidator nv = new FastNodingValidator(noded);
+		if(!nv.isValid()) {
+			LOGGER.warn("Snap-rounding did not produce a valid noding (" + nv.getErrorMessage() + "). Build graph with union instead.");
+			return buildForTesselation(geoms, env);
+		}
+		nv = null;
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("   Remove duplicates among " + noded.size() + " noded lines");
+		//the segments of the noded envelope boundary
+		Set<List<Coordinate>> envSegs = new HashSet<List<Coordinate>>();
+		for(Object ss : noded) {
+			if(((SegmentString)ss).getData() == null) continue;
+			Coordinate[] cs = CoordinateArrays.removeRepeatedPoints(((SegmentString)ss).getCoordinates());
+			for(int i=1; i<cs.length; i++) envSegs.add(getNormalisedKey(new Coordinate[] { cs[i-1], cs[i] }));
 		}
 
+		//the parts along the envelope and the other parts are merged separately, so that they remain separate edges
+		GeometryFactory gf = JTSGeomUtil.getGeometryFactory();
+		Set<List<Coordinate>> keys = new HashSet<List<Coordinate>>();
+		LineMerger lm = new LineMerger(), lmEnv = new LineMerger();
+		for(Object ss : noded) {
+			if(((SegmentString)ss).getData() != null) continue;
+			Coordinate[] cs = CoordinateArrays.removeRepeatedPoints(((SegmentString)ss).getCoordinates());
+			if(cs.length < 2) continue;
+			if(!keys.add(getNormalisedKey(cs))) continue;
+			if(envSegs.size() == 0) { lm.add(gf.createLineString(cs)); continue; }
+			//cut into runs of segments along the envelope or not
+			int start = 0;
+			boolean onEnv = envSegs.contains(getNormalisedKey(new Coordinate[] { cs[0], cs[1] }));
+			for(int i=2; i<=cs.length; i++) {
+				boolean onEnv_ = i<cs.length && envSegs.contains(getNormalisedKey(new Coordinate[] { cs[i-1], cs[i] }));
+				if(i<cs.length && onEnv_ == onEnv) continue;
+				(onEnv? lmEnv : lm).add(gf.createLineString(Arrays.copyOfRange(cs, start, i)));
+				start = i-1; onEnv = onEnv_;
+			}
+		}
+		keys = null; envSegs = null; noded = null;
+
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("     run linemerger...");
+		@SuppressWarnings("unchecked")
+		Collection<LineString> lines = lm.getMergedLineStrings(); lm = null;
+		@SuppressWarnings("unchecked")
+		Collection<LineString> linesEnv = lmEnv.getMergedLineStrings(); lmEnv = null;
+		lines.addAll(linesEnv); linesEnv = null;
+		if(LOGGER.isDebugEnabled()) LOGGER.debug("     done. " + lines.size() + " lines obtained");
+
 		return build(lines, true);
 	}
 
+	//round the coordinates of a ring and add it to the rings to node. The data is null for the polygon rings.
+	private static void addRounded(List<SegmentString> rings, Coordinate[] cs, PrecisionModel pm, Object data) {
+		Coordinate[] rcs = new Coordinate[cs.length];
+		for(int i=0; i<cs.length; i++) rcs[i] = new Coordinate(pm.makePrecise(cs[i].x), pm.makePrecise(cs[i].y));
+		rcs = CoordinateArrays.removeRepeatedPoints(rcs);
+		if(rcs.length < 2) return;
+		rings.add(new NodedSegmentString(rcs, data));
+	}
+
+	//a key of a line, which is the same for its reverse and, for a closed line, whatever its start point
+	private static List<Coordinate> getNormalisedKey(Coordinate[] cs) {
+		int n = cs.length;
+		Coordinate[] k = new Coordinate[n];
+		if(!cs[0].equals2D(cs[n-1])) {
+			boolean rev = cs[0].compareTo(cs[n-1]) > 0;
+			for(int i=0; i<n; i++) k[i] = rev? cs[n-1-i] : cs[i];
+			return Arrays.asList(k);
+		}
+		//closed line: start from the smallest coordinate, towards its smallest neighbour
+		int m = n-1, s = 0;
+		for(int i=1; i<m; i++) if(cs[i].compareTo(cs[s]) < 0) s = i;
+		boolean rev = cs[(s+1)%m].compareTo(cs[(s-1+m)%m]) > 0;
+		for(int i=0; i<m; i++) k[i] = cs[((rev? s-i : s+i) % m + m) % m];
+		k[m] = k[0];
+		return Arrays.asList(k);
+	}
+
 }
@@ -0,0 +1,266 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.graph.base.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * Compact, read-optimised, form of a graph.
+ * Nodes, edges and faces are identified by their index, from 0.
+ * Coordinates are stored in packed (x,y) double arrays and the adjacency in compressed sparse row (CSR) form:
+ * The out edges of node n are the ones of the outEdges array between positions outOffsets[n] and outOffsets[n+1].
+ *
+ * This form uses a fraction of the memory of a Graph, and is immutable.
+ * It can be converted from and to a Graph, for the algorithms requiring mutation.
+ *
+ * @author julien Gaffuri
+ *
+ */
+public class CompactGraph {
+
+	//nodes
+	private int nbNodes;
+	private double[] nodeXY;
+	private double[] nodeValues;
+
+	//edges
+	private int nbEdges;
+	private int[] edgeN1, edgeN2;
+	//edge coordinates: coordinates of edge e are the ones of edgeXY between positions 2*edgeCoordOffsets[e] and 2*edgeCoordOffsets[e+1]
+	private int[] edgeCoordOffsets;
+	private double[] edgeXY;
+	private double[] edgeValues;
+	//edge faces, -1 if none
+	private int[] edgeF1, edgeF2;
+
+	//adjacency, in CSR form
+	private int[] outOffsets, outEdges;
+	private int[] inOffsets, inEdges;
+
+	//faces
+	private int nbFaces;
+	private int[] faceEdgeOffsets, faceEdges;
+
+	private CompactGraph() {}
+
+	//the factory of the edge geometries, which keep the packed coordinates
+	private static final GeometryFactory GF = new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+
+
+
+	//nodes
+
+	/** The number of nodes. */
+	public int getNodeNumber() { return nbNodes; }
+	/** The X coordinate of node n. */
+	public double getNodeX(int n) { return nodeXY[2*n]; }
+	/** The Y coordinate of node n. */
+	public double getNodeY(int n) { return nodeXY[2*n+1]; }
+	/** The value of node n. */
+	public double getNodeValue(int n) { return nodeValues[n]; }
+
+	/** The number of edges starting from node n. */
+	public int getOutDegree(int n) { return outOffsets[n+1] - outOffsets[n]; }
+	/** The k-th edge starting from node n, with k from 0 to its out degree. */
+	public int getOutEdge(int n, int k) { return outEdges[outOffsets[n] + k]; }
+	/** The edges starting from node n, as a copy. */
+	public int[] getOutEdges(int n) { return Arrays.copyOfRange(outEdges, outOffsets[n], outOffsets[n+1]); }
+
+	/** The number of edges ending at node n. */
+	public int getInDegree(int n) { return inOffsets[n+1] - inOffsets[n]; }
+	/** The k-th edge ending at node n, with k from 0 to its in degree. */
+	public int getInEdge(int n, int k) { return inEdges[inOffsets[n] + k]; }
+	/** The edges ending at node n, as a copy. */
+	public int[] getInEdges(int n) { return Arrays.copyOfRange(inEdges, inOffsets[n], inOffsets[n+1]); }
+
+
+
+	//edges
+
+	/** The number of edges. */
+	public int getEdgeNumber() { return nbEdges; }
+	/** The initial node of edge e. */
+	public int getEdgeN1(int e) { return edgeN1[e]; }
+	/** The final node of edge e. */
+	public int getEdgeN2(int e) { return edgeN2[e]; }
+	/** The value of edge e. */
+	public double getEdgeValue(int e) { return edgeValues[e]; }
+	/** The first face of edge e, or -1 if none. */
+	public int getEdgeF1(int e) { return edgeF1[e]; }
+	/** The second face of edge e, or -1 if none. */
+	public int getEdgeF2(int e) { return edgeF2[e]; }
+
+	//edge coordinates
+	/** The number of coordinates of edge e, including its end nodes. */
+	public int getEdgeCoordinatesNumber(int e) { return edgeCoordOffsets[e+1] - edgeCoordOffsets[e]; }
+	/** The X of the i-th coordinate of edge e. */
+	public double getEdgeX(int e, int i) { return edgeXY[2*(edgeCoordOffsets[e]+i)]; }
+	/** The Y of the i-th coordinate of edge e. */
+	public double getEdgeY(int e, int i) { return edgeXY[2*(edgeCoordOffsets[e]+i)+1]; }
+	/** The coordinates of edge e, as a copy. */
+	public Coordinate[] getEdgeCoordinates(int e) {
+		Coordinate[] cs = new Coordinate[getEdgeCoordinatesNumber(e)];
+		for(int i=0; i<cs.length; i++) cs[i] = new Coordinate(getEdgeX(e,i), getEdgeY(e,i));
+		return cs;
+	}
+	/** The geometry of edge e, with packed coordinates. */
+	public LineString getEdgeGeometry(int e) {
+		double[] cs = Arrays.copyOfRange(edgeXY, 2*edgeCoordOffsets[e], 2*edgeCoordOffsets[e+1]);
+		return GF.createLineString(PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(cs, 2));
+	}
+	/** The length of edge e. */
+	public double getEdgeLength(int e) {
+		double l = 0;
+		for(int p = edgeCoordOffsets[e]+1; p < edgeCoordOffsets[e+1]; p++) {
+			double dx = edgeXY[2*p] - edgeXY[2*p-2], dy = edgeXY[2*p+1] - edgeXY[2*p-1];
+			l += Math.sqrt(dx*dx + dy*dy);
+		}
+		return l;
+	}
+
+
+
+	//faces
+
+	/** The number of faces. */
+	public int getFaceNumber() { return nbFaces; }
+	/** The number of edges of face f. */
+	public int getFaceEdgeNumber(int f) { return faceEdgeOffsets[f+1] - faceEdgeOffsets[f]; }
+	/** The k-th edge of face f, with k from 0 to its number of edges. */
+	public int getFaceEdge(int f, int k) { return faceEdges[faceEdgeOffsets[f] + k]; }
+	/** The edges of face f, as a copy. */
+	public int[] getFaceEdges(int f) { return Arrays.copyOfRange(faceEdges, faceEdgeOffsets[f], faceEdgeOffsets[f+1]); }
+
+
+
+	//conversion
+
+	/**
+	 * Build the compact form of a graph.
+	 * The element values are kept. The element ids and linked objects are not.
+	 *
+	 * @param g
+	 * @return
+	 */
+	public static CompactGraph from(Graph g) {
+		CompactGraph cg = new CompactGraph();
+
+		//nodes
+		List<Node> ns = new ArrayList<>(g.getNodes());
+		IdentityHashMap<Node, Integer> nInd = new IdentityHashMap<>();
+		cg.nbNodes = ns.size();
+		cg.nodeXY = new double[2*cg.nbNodes];
+		cg.nodeValues = new double[cg.nbNodes];
+		for(int i=0; i<cg.nbNodes; i++) {
+			Node n = ns.get(i);
+			nInd.put(n, i);
+			cg.nodeXY[2*i] = n.getC().x; cg.nodeXY[2*i+1] = n.getC().y;
+			cg.nodeValues[i] = n.value;
+		}
+		ns = null;
+
+		//edges
+		List<Edge> es = new ArrayList<>(g.getEdges());
+		IdentityHashMap<Edge, Integer> eInd = new IdentityHashMap<>();
+		cg.nbEdges = es.size();
+		cg.edgeN1 = new int[cg.nbEdges]; cg.edgeN2 = new int[cg.nbEdges];
+		cg.edgeValues = new double[cg.nbEdges];
+		cg.edgeCoordOffsets = new int[cg.nbEdges+1];
+		for(int i=0; i<cg.nbEdges; i++) {
+			Edge e = es.get(i);
+			eInd.put(e, i);
+			cg.edgeN1[i] = nInd.get(e.getN1());
+			cg.edgeN2[i] = nInd.get(e.getN2());
+			cg.edgeValues[i] = e.value;
+			cg.edgeCoordOffsets[i+1] = cg.edgeCoordOffsets[i] + e.getCoords().length;
+		}
+		cg.edgeXY = new double[2*cg.edgeCoordOffsets[cg.nbEdges]];
+		for(int i=0; i<cg.nbEdges; i++) {
+			int p = cg.edgeCoordOffsets[i];
+			for(Coordinate c : es.get(i).getCoords()) { cg.edgeXY[2*p] = c.x; cg.edgeXY[2*p+1] = c.y; p++; }
+		}
+
+		//adjacency
+		cg.outOffsets = new int[cg.nbNodes+1]; cg.inOffsets = new int[cg.nbNodes+1];
+		for(int i=0; i<cg.nbEdges; i++) { cg.outOffsets[cg.edgeN1[i]+1]++; cg.inOffsets[cg.edgeN2[i]+1]++; }
+		for(int n=0; n<cg.nbNodes; n++) { cg.outOffsets[n+1] += cg.outOffsets[n]; cg.inOffsets[n+1] += cg.inOffsets[n]; }
+		cg.outEdges = new int[cg.nbEdges]; cg.inEdges = new int[cg.nbEdges];
+		int[] outPos = Arrays.copyOf(cg.outOffsets, cg.nbNodes), inPos = Arrays.copyOf(cg.inOffsets, cg.nbNodes);
+		for(int i=0; i<cg.nbEdges; i++) {
+			cg.outEdges[outPos[cg.edgeN1[i]]++] = i;
+			cg.inEdges[inPos[cg.edgeN2[i]]++] = i;
+		}
+
+		//faces
+		List<Face> fs = new ArrayList<>(g.getFaces());
+		IdentityHashMap<Face, Integer> fInd = new IdentityHashMap<>();
+		cg.nbFaces = fs.size();
+		cg.faceEdgeOffsets = new int[cg.nbFaces+1];
+		for(int i=0; i<cg.nbFaces; i++) {
+			fInd.put(fs.get(i), i);
+			cg.faceEdgeOffsets[i+1] = cg.faceEdgeOffsets[i] + fs.get(i).getEdges().size();
+		}
+		cg.faceEdges = new int[cg.faceEdgeOffsets[cg.nbFaces]];
+		for(int i=0; i<cg.nbFaces; i++) {
+			int p = cg.faceEdgeOffsets[i];
+			for(Edge e : fs.get(i).getEdges()) cg.faceEdges[p++] = eInd.get(e);
+		}
+		cg.edgeF1 = new int[cg.nbEdges]; cg.edgeF2 = new int[cg.nbEdges];
+		for(int i=0; i<cg.nbEdges; i++) {
+			Edge e = es.get(i);
+			cg.edgeF1[i] = e.f1 == null? -1 : fInd.get(e.f1);
+			cg.edgeF2[i] = e.f2 == null? -1 : fInd.get(e.f2);
+		}
+
+		return cg;
+	}
+
+	/**
+	 * Build a Graph from this compact form.
+	 * The node i of the compact graph is the i-th node built, and similarly for edges and faces.
+	 * The first and second faces of the edges are the ones of the compact form.
+	 *
+	 * @return
+	 */
+	public Graph toGraph() {
+		Graph g = new Graph();
+
+		Node[] ns = new Node[nbNodes];
+		for(int i=0; i<nbNodes; i++) {
+			ns[i] = g.buildNode(new Coordinate(nodeXY[2*i], nodeXY[2*i+1]));
+			ns[i].value = nodeValues[i];
+		}
+
+		Edge[] es = new Edge[nbEdges];
+		for(int i=0; i<nbEdges; i++) {
+			es[i] = g.buildEdge(ns[edgeN1[i]], ns[edgeN2[i]], getEdgeCoordinates(i));
+			es[i].value = edgeValues[i];
+		}
+
+		Face[] fs = new Face[nbFaces];
+		for(int i=0; i<nbFaces; i++) {
+			Set<Edge> fes = new HashSet<>();
+			for(int p = faceEdgeOffsets[i]; p < faceEdgeOffsets[i+1]; p++) fes.add(es[faceEdges[p]]);
+			fs[i] = g.buildFace(fes);
+		}
+		//the faces are linked to the edges in the order they are built: restore the original order
+		for(int i=0; i<nbEdges; i++) {
+			es[i].f1 = edgeF1[i] == -1? null : fs[edgeF1[i]];
+			es[i].f2 = edgeF2[i] == -1? null : fs[edgeF2[i]];
+		}
+
+		return g;
+	}
+
+}
@@ -9,6 +9,8 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 
+import eu.europa.ec.eurostat.jgiscotools.feature.IdGenerator;
+
 /**
  * A graph (directed) edge
  * It is defined by an origin node and a destination node.
@@ -21,11 +23,11 @@ import org.locationtech.jts.geom.LineString;
 public class Edge extends GraphElement{
 	private final static Logger LOGGER = LogManager.getLogger(Edge.class.getName());
 
-	private static int ID = 0;
+	private static final IdGenerator ID = new IdGenerator(0);
 
 	Edge(Graph graph, Node n1, Node n2) { this(graph, n1, n2, new Coordinate[]{n1.getC(), n2.getC()}); }
 	Edge(Graph graph, Node n1, Node n2, Coordinate[] coords) {
-		super(graph, "E"+(ID++));
+		super(graph, 'E', ID.next());
 		this.n1 = n1;
 		this.n2 = n2;
 		n1.getOutEdges().add(this);
@@ -3,14 +3,15 @@
  */
 package eu.europa.ec.eurostat.jgiscotools.graph.base.structure;
 
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.locationtech.jts.geom.Polygon;
-import org.locationtech.jts.operation.polygonize.Polygonizer;
+
+import eu.europa.ec.eurostat.jgiscotools.feature.IdGenerator;
+import eu.europa.ec.eurostat.jgiscotools.feature.JTSGeomUtil;
 
 /**
  * A graph face.
@@ -23,10 +24,10 @@ import org.locationtech.jts.operation.polygonize.Polygonizer;
 public class Face extends GraphElement{
 	private final static Logger LOGGER = LogManager.getLogger(Face.class.getName());
 
-	private static int ID = 0;
+	private static final IdGenerator ID = new IdGenerator(0);
 
 	Face(Graph graph, Set<Edge> edges){
-		super(graph, "F"+(ID++));
+		super(graph, 'F', ID.next());
 		this.edges = edges;
 		updateGeometry();
 	}
@@ -38,7 +39,7 @@ public class Face extends GraphElement{
 
 
 
-	//the geometry, derived from edges geometries with polygoniser
+	//the geometry, derived from the edges by traversal of their boundary cycles
 	private Polygon geom = null;
 	public Polygon getGeom() { return geom; }
 
@@ -53,30 +54,11 @@ public class Face extends GraphElement{
 
 		if(getEdges().size() == 0) return;
 
-		//build new geometry with polygoniser
-		Polygonizer pg = new Polygonizer();
-		for(Edge e : edges) pg.add(e.getGeometry());
-		Collection<?> polys = pg.getPolygons();
-		pg = null;
-
-		//among all these polygons, holes can be included.
-		//the right one is the one whose enveloppe has the largest area
-		double maxArea = -1;
-		for(Object poly_ : polys){
-			Polygon poly = (Polygon)poly_;
-			double area = poly.getEnvelopeInternal().getArea();
-			if(area < maxArea) continue;
-			else if(area > maxArea) {
-				maxArea = area;
-				geom = poly;
-			} else if(area == maxArea && poly.getArea() > geom.getArea()){
-				geom = poly;
-				//LOGGER.warn("Ambiguity to compute polygonal geometry of "+getId()+" with polygonisation of edges: 2 candidates geometries where found.");
-			}
-		}
+		//build new geometry from the rings of the edges
+		geom = HalfEdge.getPolygon(edges, JTSGeomUtil.getGeometryFactory());
 
 		if(geom == null || geom.isEmpty())
-			;//LOGGER.warn("Could not build geometry with polygonisation for face "+getId());
+			;//LOGGER.warn("Could not build geometry for face "+getId());
 		else
 			//update index
 			getGraph().insertInSpatialIndex(this);
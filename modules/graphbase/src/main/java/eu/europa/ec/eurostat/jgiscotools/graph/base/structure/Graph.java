@@ -1,6 +1,7 @@
 package eu.europa.ec.eurostat.jgiscotools.graph.base.structure;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -21,13 +22,13 @@ public class Graph {
 	private final static Logger LOGGER = LogManager.getLogger(Graph.class.getName());
 
 	//nodes
-	private Set<Node> nodes = new HashSet<Node>();
+	private GraphElementSet<Node> nodes = new GraphElementSet<Node>();
 	public Set<Node> getNodes() { return nodes; }
 	//edges
-	private Set<Edge> edges = new HashSet<Edge>();
+	private GraphElementSet<Edge> edges = new GraphElementSet<Edge>();
 	public Set<Edge> getEdges() { return edges; }
 	//faces
-	private Set<Face> faces = new HashSet<Face>();
+	private GraphElementSet<Face> faces = new GraphElementSet<Face>();
 	public Set<Face> getFaces() { return faces; }
 
 
@@ -144,13 +145,59 @@ public class Graph {
 
 	//support for spatial queries
 
+	//bulk loading mode, to speed up the construction of large graphs.
+	//In this mode, the nodes and edges are not inserted in the spatial indexes, which are built at the end,
+	//and the nodes are retrieved by their exact position with a hash map.
+	private HashMap<Coordinate, Node> nodesByPosition = null;
+
+	/**
+	 * Start the bulk loading mode.
+	 * In this mode, getNodeAt and getCreateNodeAt run in constant time, using the exact node positions.
+	 * The node and edge spatial indexes are built when the mode ends: it should be ended with endBulkLoading before any spatial query.
+	 * 
+	 * @param expectedNodeNumber The expected number of nodes, to size the position index.
+	 */
+	public void startBulkLoading(int expectedNodeNumber) {
+		if(nodesByPosition != null) return;
+		nodesByPosition = new HashMap<>(Math.max(16, (int)((nodes.size()+expectedNodeNumber)/0.75f)+1));
+		for(Node n : nodes) nodesByPosition.put(key(n.getC()), n);
+		spIndNode = new Quadtree();
+		spIndEdge = new Quadtree();
+	}
+	public void startBulkLoading() { startBulkLoading(0); }
+
+	/**
+	 * End the bulk loading mode: The node and edge spatial indexes are built.
+	 */
+	public void endBulkLoading() {
+		if(nodesByPosition == null) return;
+		nodesByPosition = null;
+		for(Node n : nodes) insertInSpatialIndex(n);
+		for(Edge e : edges) insertInSpatialIndex(e);
+	}
+
+	//the position index key. Positions with 0 and -0 coordinates are the same.
+	private static Coordinate key(Coordinate c) {
+		return c.x == 0 || c.y == 0 ? new Coordinate(c.x + 0.0, c.y + 0.0) : c;
+	}
+
 	//nodes
 	private Quadtree spIndNode = new Quadtree();
-	public void insertInSpatialIndex(Node n){ spIndNode.insert(new Envelope(n.getC()), n); }
-	public boolean removeFromSpatialIndex(Node n){ return spIndNode.remove(new Envelope(n.getC()), n); }
+	public void insertInSpatialIndex(Node n){
+		if(nodesByPosition != null) nodesByPosition.put(key(n.getC()), n);
+		else spIndNode.insert(new Envelope(n.getC()), n);
+	}
+	public boolean removeFromSpatialIndex(Node n){
+		if(nodesByPosition != null) return nodesByPosition.remove(key(n.getC()), n);
+		return spIndNode.remove(new Envelope(n.getC()), n);
+	}
 	@SuppressWarnings("unchecked")
-	public Collection<Node> getNodesAt(Envelope env) { return (Collection<Node>)spIndNode.query(env); }
+	public Collection<Node> getNodesAt(Envelope env) {
+		if(nodesByPosition != null) LOGGER.warn("Spatial query on nodes during bulk loading.");
+		return (Collection<Node>)spIndNode.query(env);
+	}
 	public Node getNodeAt(Coordinate c) {
+		if(nodesByPosition != null) return nodesByPosition.get(key(c));
 		for(Node n : getNodesAt(new Envelope(c))) if(c.distance(n.getC()) == 0) return n;
 		return null;
 	}
@@ -162,10 +209,19 @@ public class Graph {
 
 	//edges
 	private Quadtree spIndEdge = new Quadtree();
-	public void insertInSpatialIndex(Edge e){ spIndEdge.insert(e.getGeometry().getEnvelopeInternal(), e); }
-	public boolean removeFromSpatialIndex(Edge e){ return spIndEdge.remove(e.getGeometry().getEnvelopeInternal(), e); }
+	public void insertInSpatialIndex(Edge e){
+		if(nodesByPosition != null) return;
+		spIndEdge.insert(e.getGeometry().getEnvelopeInternal(), e);
+	}
+	public boolean removeFromSpatialIndex(Edge e){
+		if(nodesByPosition != null) return true;
+		return spIndEdge.remove(e.getGeometry().getEnvelopeInternal(), e);
+	}
 	@SuppressWarnings("unchecked")
-	public Collection<Edge> getEdgesAt(Envelope env) { return (Collection<Edge>)spIndEdge.query(env); }
+	public Collection<Edge> getEdgesAt(Envelope env) {
+		if(nodesByPosition != null) LOGGER.warn("Spatial query on edges during bulk loading.");
+		return (Collection<Edge>)spIndEdge.query(env);
+	}
 
 	//faces
 	private Quadtree spIndFace = new Quadtree();
@@ -178,14 +234,10 @@ public class Graph {
 
 
 
-	//retrieve graph elements by id
-	public Node getNode(String id){ return (Node)getElt(id, getNodes()); }
-	public Edge getEdge(String id){ return (Edge)getElt(id, getEdges()); }
-	public Face getFace(String id){ return (Face)getElt(id, getFaces()); }
-	private GraphElement getElt(String id, Set<? extends GraphElement> elts){
-		for(GraphElement ge:elts) if(ge.getId().equals(id)) return ge;
-		return null;
-	}
+	//retrieve graph elements by id, in constant time
+	public Node getNode(String id){ return nodes.get(id); }
+	public Edge getEdge(String id){ return edges.get(id); }
+	public Face getFace(String id){ return faces.get(id); }
 
 	//find edges linking two nodes
 	public Set<Edge> getEdge(Node n1, Node n2) {
@@ -15,15 +15,29 @@ public abstract class GraphElement {
 	private Graph graph;
 	public Graph getGraph() { return graph; }
 
-	//the id
+	//the id. Built lazily from the prefix and the numeric id, if not set.
 	private String id;
-	public String getId(){ return id; }
+	public String getId(){
+		if(id == null) id = prefix + Long.toString(numId);
+		return id;
+	}
+
+	//the compact numeric id, unique per element type. -1 if the id was given as a string.
+	private char prefix;
+	private long numId = -1;
+	public long getNumId(){ return numId; }
 
 	public GraphElement(Graph graph, String id){
 		this.graph = graph;
 		this.id = id;
 	}
 
+	public GraphElement(Graph graph, char prefix, long numId){
+		this.graph = graph;
+		this.prefix = prefix;
+		this.numId = numId;
+	}
+
 	//an object linked to the element
 	public Object obj;
 	//a value attached to the element
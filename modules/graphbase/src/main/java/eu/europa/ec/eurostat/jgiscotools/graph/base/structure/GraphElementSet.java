@@ -0,0 +1,85 @@
+package eu.europa.ec.eurostat.jgiscotools.graph.base.structure;
+
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+
+/**
+ * A set of graph elements, with constant time retrieval by id.
+ * The id index is built on the first retrieval only, and then kept in sync with
+ * the insertions and removals, including the ones made through the iterator.
+ *
+ * @author julien Gaffuri
+ *
+ * @param <T>
+ */
+class GraphElementSet<T extends GraphElement> extends AbstractSet<T> {
+
+	private HashSet<T> elts = new HashSet<T>();
+
+	//the id index. Null as long as no retrieval by id is made, so that the ids do not need to be built.
+	private HashMap<String, T> index = null;
+
+	/**
+	 * @param id
+	 * @return The element with the id, or null if none.
+	 */
+	T get(String id) {
+		if(index == null) {
+			index = new HashMap<String, T>(Math.max(16, (int)(elts.size()/0.75f)+1));
+			for(T elt : elts) index.put(elt.getId(), elt);
+		}
+		return index.get(id);
+	}
+
+	@Override
+	public boolean add(T elt) {
+		if(!elts.add(elt)) return false;
+		if(index != null) index.put(elt.getId(), elt);
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if(!elts.remove(o)) return false;
+		unindex(o);
+		return true;
+	}
+
+	private void unindex(Object o) {
+		if(index == null) return;
+		String id = ((GraphElement)o).getId();
+		if(index.get(id) == o) index.remove(id);
+	}
+
+	@Override
+	public boolean contains(Object o) { return elts.contains(o); }
+
+	@Override
+	public int size() { return elts.size(); }
+
+	@Override
+	public void clear() {
+		elts.clear();
+		index = null;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		Iterator<T> it = elts.iterator();
+		return new Iterator<T>() {
+			T current = null;
+			@Override
+			public boolean hasNext() { return it.hasNext(); }
+			@Override
+			public T next() { return current = it.next(); }
+			@Override
+			public void remove() {
+				it.remove();
+				unindex(current);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,221 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.graph.base.structure;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * A half-edge: one of the two oriented sides of a graph edge.
+ * The half-edges of a planar set of edges are linked into boundary cycles (doubly connected edge list):
+ * Each cycle turns around a region of the plane, which is on its left.
+ * The cycle of a bounded region is counterclockwise, the outer boundary of a connected set of edges is clockwise.
+ *
+ * @author julien Gaffuri
+ *
+ */
+public class HalfEdge {
+
+	private Edge edge;
+	public Edge getEdge() { return edge; }
+
+	//true if the half-edge has the direction of its edge, from N1 to N2
+	private boolean forward;
+	public boolean isForward() { return forward; }
+
+	//the other side of the edge
+	private HalfEdge twin;
+	public HalfEdge getTwin() { return twin; }
+
+	//the next half-edge along the boundary cycle
+	private HalfEdge next;
+	public HalfEdge getNext() { return next; }
+
+	//the position of the half-edge around its origin node, in counterclockwise order
+	private int position;
+
+	private HalfEdge(Edge edge, boolean forward) {
+		this.edge = edge;
+		this.forward = forward;
+	}
+
+	public Node getOrigin() { return forward? edge.getN1() : edge.getN2(); }
+	public Node getDestination() { return forward? edge.getN2() : edge.getN1(); }
+
+	//the coordinates, in the half-edge direction
+	public int getCoordinatesNumber() { return edge.getCoords().length; }
+	public Coordinate getCoordinate(int i) {
+		Coordinate[] cs = edge.getCoords();
+		return forward? cs[i] : cs[cs.length-1-i];
+	}
+
+	//the direction angle at the origin node
+	private double getAngle() {
+		Coordinate c0 = getCoordinate(0), c = c0;
+		for(int i=1; i<getCoordinatesNumber() && c.equals2D(c0); i++) c = getCoordinate(i);
+		return Math.atan2(c.y - c0.y, c.x - c0.x);
+	}
+
+
+
+	/**
+	 * Build the half-edges of some edges, and link them into boundary cycles.
+	 * The edges are supposed to be planar. The edges which are not in the collection are ignored.
+	 *
+	 * @param edges
+	 * @return The boundary cycles.
+	 */
+	public static List<List<HalfEdge>> getCycles(Collection<Edge> edges) {
+
+		//build the half-edges, and the half-edges leaving each node
+		List<HalfEdge> hes = new ArrayList<HalfEdge>(2*edges.size());
+		Map<Node, List<HalfEdge>> outs = new HashMap<Node, List<HalfEdge>>();
+		for(Edge e : edges) {
+			HalfEdge h1 = new HalfEdge(e, true), h2 = new HalfEdge(e, false);
+			h1.twin = h2; h2.twin = h1;
+			hes.add(h1); hes.add(h2);
+			outs.computeIfAbsent(h1.getOrigin(), n -> new ArrayList<HalfEdge>()).add(h1);
+			outs.computeIfAbsent(h2.getOrigin(), n -> new ArrayList<HalfEdge>()).add(h2);
+		}
+
+		//sort the half-edges around each node, counterclockwise
+		for(List<HalfEdge> out : outs.values()) {
+			if(out.size() > 1) {
+				double[] angles = new double[out.size()];
+				for(int i=0; i<out.size(); i++) out.get(i).position = i;
+				for(HalfEdge h : out) angles[h.position] = h.getAngle();
+				out.sort((h1, h2) -> Double.compare(angles[h1.position], angles[h2.position]));
+			}
+			for(int i=0; i<out.size(); i++) out.get(i).position = i;
+		}
+
+		//link each half-edge to the next one: the first one clockwise from its twin, around the destination node
+		for(HalfEdge h : hes) {
+			List<HalfEdge> out = outs.get(h.getDestination());
+			h.next = out.get((h.twin.position - 1 + out.size()) % out.size());
+		}
+		outs = null;
+
+		//build the cycles
+		List<List<HalfEdge>> cycles = new ArrayList<List<HalfEdge>>();
+		Set<HalfEdge> visited = Collections.newSetFromMap(new IdentityHashMap<HalfEdge, Boolean>());
+		for(HalfEdge h : hes) {
+			if(visited.contains(h)) continue;
+			List<HalfEdge> cycle = new ArrayList<HalfEdge>();
+			HalfEdge h_ = h;
+			do {
+				visited.add(h_);
+				cycle.add(h_);
+				h_ = h_.next;
+			} while(h_ != h);
+			cycles.add(cycle);
+		}
+		return cycles;
+	}
+
+	/**
+	 * Decompose a boundary cycle into simple rings, at the nodes it goes through several times.
+	 * A cycle around a region with a hole touching the region boundary, or with a dangling edge, goes through some nodes several times.
+	 * The rings made of dangling edges have a null area.
+	 *
+	 * @param cycle
+	 * @return
+	 */
+	public static List<List<HalfEdge>> getRings(List<HalfEdge> cycle) {
+		List<List<HalfEdge>> rings = new ArrayList<List<HalfEdge>>();
+		List<HalfEdge> path = new ArrayList<HalfEdge>();
+		//the position of the path half-edges leaving each node
+		Map<Node, Integer> pos = new HashMap<Node, Integer>();
+		for(HalfEdge h : cycle) {
+			Node n = h.getOrigin();
+			Integer p = pos.get(n);
+			if(p != null) {
+				//the path comes back to the node: close a ring
+				List<HalfEdge> sub = path.subList(p, path.size());
+				List<HalfEdge> ring = new ArrayList<HalfEdge>(sub);
+				for(HalfEdge r : ring) pos.remove(r.getOrigin());
+				sub.clear();
+				rings.add(ring);
+			}
+			pos.put(n, path.size());
+			path.add(h);
+		}
+		rings.add(path);
+		return rings;
+	}
+
+	/**
+	 * @param ring
+	 * @return The coordinates of a ring, closed.
+	 */
+	public static Coordinate[] getCoordinates(List<HalfEdge> ring) {
+		List<Coordinate> cs = new ArrayList<Coordinate>();
+		for(HalfEdge h : ring)
+			for(int i=0; i<h.getCoordinatesNumber()-1; i++) {
+				Coordinate c = h.getCoordinate(i);
+				if(cs.size() == 0 || !c.equals2D(cs.get(cs.size()-1))) cs.add(c);
+			}
+		cs.add(cs.get(0));
+		return cs.toArray(new Coordinate[cs.size()]);
+	}
+
+	/**
+	 * @param cs The closed coordinates of a ring.
+	 * @return The signed area of the ring: positive for counterclockwise rings, negative for clockwise ones.
+	 */
+	public static double getSignedArea(Coordinate[] cs) {
+		double a = 0;
+		for(int i=1; i<cs.length; i++) a += (cs[i-1].x - cs[0].x) * (cs[i].y - cs[0].y) - (cs[i].x - cs[0].x) * (cs[i-1].y - cs[0].y);
+		return a * 0.5;
+	}
+
+	/**
+	 * Build the polygon delimited by some edges, by traversal of their boundary cycles.
+	 * The shell is the largest counterclockwise ring. The holes are the clockwise rings, except the outer boundary of the shell.
+	 * This runs in a time linear in the number of coordinates.
+	 *
+	 * @param edges
+	 * @param gf
+	 * @return The polygon, or null if the edges do not delimit any area.
+	 */
+	public static Polygon getPolygon(Collection<Edge> edges, GeometryFactory gf) {
+
+		//get the rings, with their coordinates and areas
+		List<List<HalfEdge>> rings = new ArrayList<List<HalfEdge>>();
+		for(List<HalfEdge> cycle : getCycles(edges)) rings.addAll(getRings(cycle));
+		List<Coordinate[]> css = new ArrayList<Coordinate[]>(rings.size());
+		double[] areas = new double[rings.size()];
+		int shell = -1;
+		for(int i=0; i<rings.size(); i++) {
+			Coordinate[] cs = getCoordinates(rings.get(i));
+			css.add(cs);
+			areas[i] = cs.length < 4? 0 : getSignedArea(cs);
+			if(areas[i] > 0 && (shell == -1 || areas[i] > areas[shell])) shell = i;
+		}
+		if(shell == -1) return null;
+
+		//the outer boundary of the shell is made of the twins of the shell half-edges
+		Set<HalfEdge> shellTwins = Collections.newSetFromMap(new IdentityHashMap<HalfEdge, Boolean>());
+		for(HalfEdge h : rings.get(shell)) shellTwins.add(h.twin);
+
+		List<LinearRing> holes = new ArrayList<LinearRing>();
+		for(int i=0; i<rings.size(); i++) {
+			if(areas[i] >= 0 || shellTwins.contains(rings.get(i).get(0))) continue;
+			holes.add(gf.createLinearRing(css.get(i)));
+		}
+		return gf.createPolygon(gf.createLinearRing(css.get(shell)), holes.toArray(new LinearRing[holes.size()]));
+	}
+
+}
@@ -8,6 +8,8 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 
+import eu.europa.ec.eurostat.jgiscotools.feature.IdGenerator;
+
 /**
  * A graph node.
  * It is located somewhere and is linked to incoming and outcoming edges.
@@ -18,10 +20,10 @@ import org.locationtech.jts.geom.Point;
 public class Node extends GraphElement{
 	//private final static Logger LOGGER = Logger.getLogger(Node.class.getName()));
 
-	private static int ID = 0;
+	private static final IdGenerator ID = new IdGenerator(0);
 
 	Node(Graph graph, Coordinate c){
-		super(graph, "N"+(ID++));
+		super(graph, 'N', ID.next());
 		this.c = c;
 		graph.insertInSpatialIndex(this);
 	}
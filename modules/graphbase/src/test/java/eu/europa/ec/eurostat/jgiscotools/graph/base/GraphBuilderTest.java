@@ -0,0 +1,133 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.graph.base;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+import eu.europa.ec.eurostat.jgiscotools.graph.base.structure.Edge;
+import eu.europa.ec.eurostat.jgiscotools.graph.base.structure.Graph;
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class GraphBuilderTest extends TestCase {
+	private static final GeometryFactory gf = new GeometryFactory();
+
+	//a vertex of a distorted grid
+	private static Coordinate getVertex(int i, int j) {
+		return new Coordinate(i*10 + 3*Math.sin(i*1.3+j*0.7), j*10 + 3*Math.cos(i*0.9+j*1.1));
+	}
+
+	//the boundaries of the cells of a distorted grid, counterclockwise:
+	//the boundary shared by two adjacent cells is drawn in opposite directions.
+	static List<LineString> getCellBoundaries(int n) {
+		List<LineString> lines = new ArrayList<LineString>();
+		for(int i=0; i<n; i++)
+			for(int j=0; j<n; j++)
+				lines.add(gf.createLineString(new Coordinate[] {
+						getVertex(i,j), getVertex(i+1,j), getVertex(i+1,j+1), getVertex(i,j+1), getVertex(i,j)
+				}));
+		return lines;
+	}
+
+	//the normalised edge geometries of a graph, sorted
+	private static List<Geometry> getEdgeGeometries(Graph g) {
+		List<Geometry> gs = new ArrayList<Geometry>();
+		for(Edge e : g.getEdges()) gs.add(e.getGeometry().norm());
+		gs.sort(null);
+		return gs;
+	}
+
+	/***/
+	public void testTiledBuildSharedBoundaries() {
+		int n = 8;
+		Graph g = GraphBuilder.buildFromLinearGeometriesPlanar(getCellBoundaries(n), true);
+		assertEquals(n*n, g.getFaces().size());
+
+		for(double tileSize : new double[] { 7, 13.3, 31 })
+			for(boolean parallel : new boolean[] { false, true }) {
+				Graph gt = GraphBuilder.buildFromLinearGeometriesPlanar(getCellBoundaries(n), true, tileSize, parallel);
+				assertEquals(g.getNodes().size(), gt.getNodes().size());
+				assertEquals(g.getEdges().size(), gt.getEdges().size());
+				assertEquals(g.getFaces().size(), gt.getFaces().size());
+
+				//same edges, whatever their direction
+				List<Geometry> es = getEdgeGeometries(g), ets = getEdgeGeometries(gt);
+				for(int i=0; i<es.size(); i++)
+					assertTrue(es.get(i).equalsExact(ets.get(i)));
+			}
+	}
+
+	//a vertex of a grid which is distorted inside, with straight outer boundary, rounded to the millimetre
+	private static Coordinate getInnerVertex(int i, int j, int n) {
+		if(i==0 || j==0 || i==n || j==n) return new Coordinate(i*10, j*10);
+		Coordinate c = getVertex(i, j);
+		return new Coordinate(mm(c.x), mm(c.y));
+	}
+	private static double mm(double x) { return Math.round(x*1000) / 1000.0; }
+
+	//the cells of a grid. If noise, the boundary shared by two cells is drawn slightly differently for each of them, with an additional vertex.
+	static List<MultiPolygon> getCells(int n, boolean noise) {
+		List<MultiPolygon> cells = new ArrayList<MultiPolygon>();
+		for(int i=0; i<n; i++)
+			for(int j=0; j<n; j++) {
+				Coordinate[] vs = new Coordinate[] { getInnerVertex(i,j,n), getInnerVertex(i+1,j,n), getInnerVertex(i+1,j+1,n), getInnerVertex(i,j+1,n) };
+				List<Coordinate> cs = new ArrayList<Coordinate>();
+				for(int k=0; k<4; k++) {
+					Coordinate c = vs[k], c_ = vs[(k+1)%4];
+					if(!noise) { cs.add(c); continue; }
+					double d = 1e-7 * ((i*7+j*3+k)%5 - 2);
+					cs.add(new Coordinate(c.x + d, c.y - d));
+					cs.add(new Coordinate(mm((c.x+c_.x)*0.5) + d, mm((c.y+c_.y)*0.5) + d));
+				}
+				cs.add(cs.get(0));
+				Polygon p = gf.createPolygon(cs.toArray(new Coordinate[cs.size()]));
+				cells.add(gf.createMultiPolygon(new Polygon[] { p }));
+			}
+		return cells;
+	}
+
+	/***/
+	public void testTesselationNearlyIdenticalBoundaries() {
+		int n = 6;
+		Graph g = GraphBuilder.buildForTesselation(getCells(n, false));
+		assertEquals(n*n, g.getFaces().size());
+
+		Envelope env = new Envelope(0, n*10, 0, n*10);
+		for(Envelope env_ : new Envelope[] { null, env }) {
+			Graph gs = GraphBuilder.buildForTesselation(getCells(n, true), env_, 1000);
+			assertEquals(g.getNodes().size(), gs.getNodes().size());
+			assertEquals(g.getEdges().size(), gs.getEdges().size());
+			assertEquals(g.getFaces().size(), gs.getFaces().size());
+		}
+	}
+
+	/***/
+	public void testTesselationEnvelope() {
+		//a square, whose left, bottom and right sides are along the envelope
+		Polygon p = gf.createPolygon(new Coordinate[] { new Coordinate(0,0), new Coordinate(10,0), new Coordinate(10,10), new Coordinate(0,10), new Coordinate(0,0) });
+		List<MultiPolygon> mps = new ArrayList<MultiPolygon>();
+		mps.add(gf.createMultiPolygon(new Polygon[] { p }));
+		Envelope env = new Envelope(0, 10, 0, 20);
+
+		Graph gs = GraphBuilder.buildForTesselation(mps, env, 1000);
+		assertEquals(2, gs.getNodes().size());
+		assertEquals(2, gs.getEdges().size());
+		assertEquals(1, gs.getFaces().size());
+
+		assertEquals(1, GraphBuilder.buildForTesselation(mps, null, 1000).getEdges().size());
+	}
+
+}
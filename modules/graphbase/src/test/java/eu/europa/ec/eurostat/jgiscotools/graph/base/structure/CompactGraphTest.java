@@ -0,0 +1,116 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.graph.base.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+import eu.europa.ec.eurostat.jgiscotools.graph.base.GraphBuilder;
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class CompactGraphTest extends TestCase {
+	private static final GeometryFactory gf = new GeometryFactory();
+
+	//a graph with several faces, a hole, a dangling edge, and values
+	private static Graph getGraph() {
+		List<LineString> lines = new ArrayList<LineString>();
+		for(int i=0; i<3; i++)
+			for(int j=0; j<2; j++)
+				lines.add(gf.createLineString(new Coordinate[] { new Coordinate(i*10,j*10), new Coordinate(i*10+10,j*10), new Coordinate(i*10+10,j*10+10), new Coordinate(i*10,j*10+10), new Coordinate(i*10,j*10) }));
+		lines.add(gf.createLineString(new Coordinate[] { new Coordinate(2,2), new Coordinate(5,2), new Coordinate(5,5), new Coordinate(2,2) }));
+		lines.add(gf.createLineString(new Coordinate[] { new Coordinate(30,20), new Coordinate(35,27), new Coordinate(40,25) }));
+		Graph g = GraphBuilder.buildFromLinearGeometriesPlanar(lines, true);
+		int i = 0;
+		for(Node n : g.getNodes()) n.value = i++;
+		for(Edge e : g.getEdges()) e.value = i++;
+		return g;
+	}
+
+	/***/
+	public void testRoundTrip() {
+		Graph g = getGraph();
+		CompactGraph cg = CompactGraph.from(g);
+		assertEquals(g.getNodes().size(), cg.getNodeNumber());
+		assertEquals(g.getEdges().size(), cg.getEdgeNumber());
+		assertEquals(g.getFaces().size(), cg.getFaceNumber());
+
+		Graph g2 = cg.toGraph();
+		assertEquals(g.getNodes().size(), g2.getNodes().size());
+		assertEquals(g.getEdges().size(), g2.getEdges().size());
+		assertEquals(g.getFaces().size(), g2.getFaces().size());
+
+		//nodes, by position
+		Map<Coordinate, Node> ns2 = new HashMap<Coordinate, Node>();
+		for(Node n : g2.getNodes()) ns2.put(n.getC(), n);
+		for(Node n : g.getNodes()) {
+			Node n2 = ns2.get(n.getC());
+			assertNotNull(n2);
+			assertEquals(n.value, n2.value);
+			assertEquals(n.getOutEdges().size(), n2.getOutEdges().size());
+			assertEquals(n.getInEdges().size(), n2.getInEdges().size());
+		}
+
+		//edges, by coordinates
+		Map<List<Coordinate>, Edge> es2 = new HashMap<List<Coordinate>, Edge>();
+		for(Edge e : g2.getEdges()) es2.put(Arrays.asList(e.getCoords()), e);
+		for(Edge e : g.getEdges()) {
+			Edge e2 = es2.get(Arrays.asList(e.getCoords()));
+			assertNotNull(e2);
+			assertEquals(e.value, e2.value);
+			assertSame(ns2.get(e.getN1().getC()), e2.getN1());
+			assertSame(ns2.get(e.getN2().getC()), e2.getN2());
+
+			//faces, in the same order
+			assertEquals(e.f1 == null, e2.f1 == null);
+			assertEquals(e.f2 == null, e2.f2 == null);
+			if(e.f1 != null) assertTrue(e.f1.getGeom().equalsTopo(e2.f1.getGeom()));
+			if(e.f2 != null) assertTrue(e.f2.getGeom().equalsTopo(e2.f2.getGeom()));
+		}
+		for(Face f2 : g2.getFaces())
+			for(Edge e2 : f2.getEdges()) assertTrue(e2.f1 == f2 || e2.f2 == f2);
+	}
+
+	/***/
+	public void testAccessors() {
+		CompactGraph cg = CompactGraph.from(getGraph());
+
+		int nbOut = 0, nbIn = 0;
+		for(int n=0; n<cg.getNodeNumber(); n++) {
+			for(int k=0; k<cg.getOutDegree(n); k++) assertEquals(n, cg.getEdgeN1(cg.getOutEdge(n, k)));
+			for(int k=0; k<cg.getInDegree(n); k++) assertEquals(n, cg.getEdgeN2(cg.getInEdge(n, k)));
+			assertEquals(cg.getOutDegree(n), cg.getOutEdges(n).length);
+			assertEquals(cg.getInDegree(n), cg.getInEdges(n).length);
+			nbOut += cg.getOutDegree(n); nbIn += cg.getInDegree(n);
+		}
+		assertEquals(cg.getEdgeNumber(), nbOut);
+		assertEquals(cg.getEdgeNumber(), nbIn);
+
+		for(int e=0; e<cg.getEdgeNumber(); e++) {
+			LineString ls = cg.getEdgeGeometry(e);
+			assertEquals(cg.getEdgeCoordinatesNumber(e), ls.getNumPoints());
+			assertTrue(Arrays.equals(cg.getEdgeCoordinates(e), ls.getCoordinates()));
+			assertEquals(ls.getLength(), cg.getEdgeLength(e), 1e-9);
+			assertEquals(cg.getNodeX(cg.getEdgeN1(e)), cg.getEdgeX(e, 0));
+			assertEquals(cg.getNodeY(cg.getEdgeN2(e)), cg.getEdgeY(e, cg.getEdgeCoordinatesNumber(e)-1));
+		}
+
+		for(int f=0; f<cg.getFaceNumber(); f++)
+			for(int k=0; k<cg.getFaceEdgeNumber(f); k++) {
+				int e = cg.getFaceEdge(f, k);
+				assertTrue(cg.getEdgeF1(e) == f || cg.getEdgeF2(e) == f);
+			}
+	}
+
+}
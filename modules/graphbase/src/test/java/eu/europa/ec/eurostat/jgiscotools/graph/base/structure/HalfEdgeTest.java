@@ -0,0 +1,150 @@
+/**
+ *
+ */
+package eu.europa.ec.eurostat.jgiscotools.graph.base.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+
+import eu.europa.ec.eurostat.jgiscotools.graph.base.GraphBuilder;
+import junit.framework.TestCase;
+
+/**
+ * @author julien Gaffuri
+ *
+ */
+public class HalfEdgeTest extends TestCase {
+	private static final GeometryFactory gf = new GeometryFactory();
+
+	//a closed line from some x,y values
+	private static LineString ring(double... xys) {
+		Coordinate[] cs = new Coordinate[xys.length/2 + 1];
+		for(int i=0; i<xys.length/2; i++) cs[i] = new Coordinate(xys[2*i], xys[2*i+1]);
+		cs[cs.length-1] = cs[0];
+		return gf.createLineString(cs);
+	}
+	private static LineString square(double x, double y, double size) {
+		return ring(x,y, x+size,y, x+size,y+size, x,y+size);
+	}
+
+	//the sorted signed areas of the rings of the boundary cycles
+	private static List<Double> getRingAreas(Graph g) {
+		List<Double> areas = new ArrayList<Double>();
+		for(List<HalfEdge> cycle : HalfEdge.getCycles(g.getEdges()))
+			for(List<HalfEdge> ring : HalfEdge.getRings(cycle)) {
+				Coordinate[] cs = HalfEdge.getCoordinates(ring);
+				areas.add(cs.length < 4? 0.0 : HalfEdge.getSignedArea(cs));
+			}
+		areas.sort(null);
+		return areas;
+	}
+
+	//the sorted areas of the faces
+	private static List<Double> getFaceAreas(Graph g) {
+		List<Double> areas = new ArrayList<Double>();
+		for(Face f : g.getFaces()) areas.add(f.getGeom().getArea());
+		areas.sort(null);
+		return areas;
+	}
+
+	/***/
+	public void testHoleTouchingShell() {
+		//a square with a triangle inside, touching it at (0,0)
+		Graph g = GraphBuilder.buildFromLinearGeometriesPlanar(Arrays.asList(square(0,0,10), ring(0,0, 5,2, 2,5)), true);
+
+		//the triangle, the square around it, and the outer boundary
+		assertEquals(3, HalfEdge.getCycles(g.getEdges()).size());
+		//the cycle around the region between the square and the triangle goes twice through (0,0): it has two rings
+		assertEquals(Arrays.asList(-100.0, -10.5, 10.5, 100.0), getRingAreas(g));
+
+		assertEquals(Arrays.asList(10.5, 89.5), getFaceAreas(g));
+		for(Face f : g.getFaces()) {
+			if(f.getEdges().size() == 1) continue;
+			assertEquals(1, f.getGeom().getNumInteriorRing());
+			assertTrue(f.getGeom().isValid());
+		}
+
+		Polygon p = HalfEdge.getPolygon(g.getEdges(), gf);
+		assertEquals(89.5, p.getArea());
+		assertEquals(1, p.getNumInteriorRing());
+	}
+
+	/***/
+	public void testDanglingEdge() {
+		LineString dangle = gf.createLineString(new Coordinate[] { new Coordinate(0,0), new Coordinate(3,3) });
+		Graph g = GraphBuilder.buildFromLinearGeometriesPlanar(Arrays.asList(square(0,0,10), dangle), true);
+
+		//the square and the dangle, and the outer boundary
+		assertEquals(2, HalfEdge.getCycles(g.getEdges()).size());
+		//the dangle is a ring with a null area
+		assertEquals(Arrays.asList(-100.0, 0.0, 100.0), getRingAreas(g));
+
+		assertEquals(1, g.getFaces().size());
+		Face f = g.getFaces().iterator().next();
+		assertEquals(g.getEdges().size(), f.getEdges().size());
+		assertEquals(100.0, f.getGeom().getArea());
+		assertEquals(0, f.getGeom().getNumInteriorRing());
+	}
+
+	/***/
+	public void testIslandInHole() {
+		LineString outer = square(0,0,10), hole = square(2,2,6), island = square(4,4,2);
+		Graph g = GraphBuilder.buildFromLinearGeometriesPlanar(Arrays.asList(outer, hole, island), true);
+
+		//each closed edge has its own two cycles
+		assertEquals(3, g.getEdges().size());
+		assertEquals(6, HalfEdge.getCycles(g.getEdges()).size());
+		assertEquals(Arrays.asList(-100.0, -36.0, -4.0, 4.0, 36.0, 100.0), getRingAreas(g));
+
+		//the outer boundary of the island is linked to the face of the hole, not to the face around the hole
+		assertEquals(Arrays.asList(4.0, 32.0, 64.0), getFaceAreas(g));
+		for(Face f : g.getFaces()) {
+			double a = f.getGeom().getArea();
+			assertEquals(a == 4.0? 0 : 1, f.getGeom().getNumInteriorRing());
+			assertEquals(a == 4.0? 1 : 2, f.getEdges().size());
+		}
+		for(Edge e : g.getEdges()) {
+			boolean isOuter = e.getGeometry().getEnvelopeInternal().getWidth() == 10;
+			assertEquals(isOuter, e.f2 == null);
+			assertNotNull(e.f1);
+		}
+	}
+
+	/***/
+	public void testFigureEight() {
+		//two squares touching at (10,10): the outer boundary is a figure-eight
+		Graph g = GraphBuilder.buildFromLinearGeometriesPlanar(Arrays.asList(square(0,0,10), square(10,10,10)), true);
+
+		List<List<HalfEdge>> cycles = HalfEdge.getCycles(g.getEdges());
+		assertEquals(3, cycles.size());
+		int nb = 0;
+		for(List<HalfEdge> cycle : cycles)
+			if(HalfEdge.getRings(cycle).size() == 2) nb++;
+		assertEquals(1, nb);
+		assertEquals(Arrays.asList(-100.0, -100.0, 100.0, 100.0), getRingAreas(g));
+
+		//two faces, without hole
+		assertEquals(Arrays.asList(100.0, 100.0), getFaceAreas(g));
+		for(Face f : g.getFaces()) {
+			assertEquals(1, f.getEdges().size());
+			assertEquals(0, f.getGeom().getNumInteriorRing());
+		}
+
+		//the same figure-eight, as an island in a larger square: its outer boundary makes two holes
+		g = GraphBuilder.buildFromLinearGeometriesPlanar(Arrays.asList(square(-5,-5,30), square(0,0,10), square(10,10,10)), true);
+		assertEquals(Arrays.asList(100.0, 100.0, 700.0), getFaceAreas(g));
+		for(Face f : g.getFaces()) {
+			if(f.getGeom().getArea() != 700.0) continue;
+			assertEquals(2, f.getGeom().getNumInteriorRing());
+			assertEquals(3, f.getEdges().size());
+			assertTrue(f.getGeom().isValid());
+		}
+	}
+
+}
@@ -61,7 +61,7 @@ public class Grid {
 	public Collection<Geometry> getGeometriesToCover() {
 		if(geometriesToCover == null) {
 			geometriesToCover = new ArrayList<Geometry>();
-			geometriesToCover.add( JTSGeomUtil.getGeometry(new Envelope(0.0, 10000000.0, 0.0, 10000000.0), new GeometryFactory()) );
+			geometriesToCover.add( JTSGeomUtil.getGeometry(new Envelope(0.0, 10000000.0, 0.0, 10000000.0)) );
 		}
 		return geometriesToCover;
 	}
@@ -73,7 +73,7 @@ public class Grid {
 		return this;
 	}
 	public Grid setGeometryToCover(Envelope envelopeToCover) {
-		return setGeometryToCover(JTSGeomUtil.getGeometry(envelopeToCover, new GeometryFactory()));
+		return setGeometryToCover(JTSGeomUtil.getGeometry(envelopeToCover));
 	}
 	public Grid addGeometryToCover(Geometry geometryToCover) {
 		if(geometriesToCover == null) geometriesToCover = new ArrayList<Geometry>();
@@ -14,6 +14,7 @@ import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 
 import eu.europa.ec.eurostat.jgiscotools.feature.Feature;
+import eu.europa.ec.eurostat.jgiscotools.feature.JTSGeomUtil;
 
 /**
  * A grid cell.
@@ -120,7 +121,7 @@ public class GridCell {
 	public Geometry getGeometry(GridCellGeometryType gt) {
 		Geometry g = geometry.get(gt);
 		if(g == null) {
-			GeometryFactory gf = new GeometryFactory();
+			GeometryFactory gf = JTSGeomUtil.getGeometryFactory();
 			g = gt.equals(GridCellGeometryType.CENTER_POINT)? getPointGeometry(gf ) : getPolygonGeometry(gf);
 			geometry.put(gt , g);
 		}